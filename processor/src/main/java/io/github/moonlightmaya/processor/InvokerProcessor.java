@@ -0,0 +1,258 @@
+package io.github.moonlightmaya.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates direct invokers for the script APIs.
+ *
+ * PetPetReflector binds every @PetPetWhitelist method through a reflective
+ * JavaFunction, so each script call pays for a reflective invocation. For every
+ * class with static @PetPetWhitelist methods, this processor generates a class
+ * named [ClassName]Invokers, with an install(PetPetClass) method that replaces
+ * those bindings with JavaFunctions which call the methods directly.
+ *
+ * The API class calls install() in its static initializer, right after
+ * reflecting itself, so anything set on the functions later (costPenalizers,
+ * copying methods into subclasses) sees the direct versions.
+ *
+ * Classes of static helpers which get registered by hand, like Vectors and
+ * Matrices, can't be installed by name, since one helper may be registered
+ * under several names on several classes. Those are marked with
+ * @GenerateInvokers instead, and their [ClassName]Invokers gets a
+ * get(String methodName) which returns a direct JavaFunction for any of the
+ * class's public static methods. The class calls it wherever it would have
+ * made a reflective JavaFunction.
+ *
+ * Methods with more params than JavaFunction has fixed-arity invoke()
+ * overloads for are left as reflective bindings.
+ *
+ * Arguments are type checked before the call, like reflection would, so a script
+ * passing the wrong type gets a PetPetException naming the method and parameter
+ * rather than a ClassCastException or NullPointerException.
+ */
+@SupportedAnnotationTypes({InvokerProcessor.WHITELIST, InvokerProcessor.GENERATE})
+@SupportedSourceVersion(SourceVersion.RELEASE_17)
+public class InvokerProcessor extends AbstractProcessor {
+
+    static final String WHITELIST = "petpet.external.PetPetWhitelist";
+    static final String GENERATE = "io.github.moonlightmaya.script.apis.GenerateInvokers";
+
+    //The most args any fixed-arity JavaFunction.invoke() overload takes
+    private static final int MAX_ARGS = 5;
+
+    //What to generate for one class: its static whitelisted methods to install(), and its helpers for get()
+    private static class Spec {
+        final List<ExecutableElement> whitelisted = new ArrayList<>();
+        final List<ExecutableElement> helpers = new ArrayList<>();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        //Gather up the methods by the class they're in, since one class may have both annotations
+        Map<TypeElement, Spec> specs = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            boolean isGenerate = annotation.getQualifiedName().contentEquals(GENERATE);
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isGenerate) {
+                    if (!(element instanceof TypeElement owner)) continue;
+                    Spec spec = specs.computeIfAbsent(owner, o -> new Spec());
+                    for (Element member : owner.getEnclosedElements())
+                        if (isPublicStaticMethod(member))
+                            spec.helpers.add((ExecutableElement) member);
+                } else if (isPublicStaticMethod(element)) {
+                    TypeElement owner = (TypeElement) element.getEnclosingElement();
+                    specs.computeIfAbsent(owner, o -> new Spec()).whitelisted.add((ExecutableElement) element);
+                }
+            }
+        }
+        for (Map.Entry<TypeElement, Spec> entry : specs.entrySet()) {
+            try {
+                generate(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Failed to generate invokers: " + e.getMessage(), entry.getKey());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPublicStaticMethod(Element element) {
+        return element.getKind() == ElementKind.METHOD
+                && element.getModifiers().contains(Modifier.STATIC)
+                && element.getModifiers().contains(Modifier.PUBLIC);
+    }
+
+    private void generate(TypeElement owner, Spec spec) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+        String ownerName = owner.getQualifiedName().toString();
+        String className = owner.getSimpleName() + "Invokers";
+
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("import petpet.lang.run.JavaFunction;\n");
+        out.append("import petpet.lang.run.PetPetClass;\n");
+        out.append("import petpet.lang.run.PetPetException;\n\n");
+        out.append("/**\n * Generated by InvokerProcessor from ").append(owner.getSimpleName()).append(", do not edit.\n */\n");
+        out.append("@javax.annotation.processing.Generated(\"").append(InvokerProcessor.class.getName()).append("\")\n");
+        out.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"}) //Generic params are passed through erased\n");
+        out.append("public final class ").append(className).append(" {\n\n");
+        out.append("    private ").append(className).append("() {}\n\n");
+
+        if (!spec.whitelisted.isEmpty()) {
+            out.append("    public static void install(PetPetClass clazz) {\n");
+            for (ExecutableElement method : spec.whitelisted) {
+                if (method.getParameters().size() > MAX_ARGS)
+                    continue; //stays reflective
+                out.append("        clazz.methods.put(\"").append(method.getSimpleName()).append("\", ");
+                appendFunction(out, owner, method, "        ");
+                out.append(");\n");
+            }
+            out.append("    }\n\n");
+        }
+
+        if (!spec.helpers.isEmpty()) {
+            //Looked up by the Java method name, so overloads would be ambiguous
+            Set<String> names = new HashSet<>();
+            for (ExecutableElement method : spec.helpers)
+                if (!names.add(method.getSimpleName().toString()))
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "@GenerateInvokers classes can't overload their static methods", method);
+
+            out.append("    /**\n     * A direct JavaFunction for the given static method of ").append(owner.getSimpleName()).append("\n     */\n");
+            out.append("    public static JavaFunction get(String methodName) {\n");
+            out.append("        return switch (methodName) {\n");
+            for (ExecutableElement method : spec.helpers) {
+                String name = method.getSimpleName().toString();
+                if (method.getParameters().size() > MAX_ARGS) {
+                    out.append("            case \"").append(name).append("\" -> new JavaFunction(").append(ownerName)
+                            .append(".class, \"").append(name).append("\", false); //Too many params, stays reflective\n");
+                    continue;
+                }
+                out.append("            case \"").append(name).append("\" -> ");
+                appendFunction(out, owner, method, "            ");
+                out.append(";\n");
+            }
+            out.append("            default -> throw new IllegalArgumentException(\"No static method \" + methodName + \" in ")
+                    .append(owner.getSimpleName()).append("\");\n");
+            out.append("        };\n");
+            out.append("    }\n\n");
+        }
+
+        out.append(HELPERS);
+        out.append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + className, owner);
+        try (Writer writer = file.openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    /**
+     * Appends new JavaFunction(isVoid, paramCount) { invoke(Object arg0, ...) },
+     * calling the static method directly. "indent" is that of the line it starts on.
+     */
+    private void appendFunction(StringBuilder out, TypeElement owner, ExecutableElement method, String indent) {
+        List<? extends VariableElement> params = method.getParameters();
+        boolean isVoid = method.getReturnType().getKind() == TypeKind.VOID;
+        String name = method.getSimpleName().toString();
+
+        out.append("new JavaFunction(").append(isVoid).append(", ").append(params.size()).append(") {\n");
+        out.append(indent).append("    @Override\n");
+        out.append(indent).append("    public Object invoke(");
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) out.append(", ");
+            out.append("Object arg").append(i);
+        }
+        out.append(") {\n");
+
+        StringBuilder call = new StringBuilder();
+        call.append(owner.getQualifiedName()).append('.').append(name).append('(');
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) call.append(", ");
+            String where = "\"" + owner.getSimpleName() + "." + name + "\", \"" + params.get(i).getSimpleName() + "\"";
+            call.append(convertArg(params.get(i).asType(), "arg" + i, where));
+        }
+        call.append(')');
+
+        if (isVoid) {
+            out.append(indent).append("        ").append(call).append(";\n");
+            out.append(indent).append("        return null;\n");
+        } else {
+            out.append(indent).append("        return ").append(convertReturn(method.getReturnType(), call.toString())).append(";\n");
+        }
+        out.append(indent).append("    }\n");
+        out.append(indent).append("}");
+    }
+
+    /**
+     * Scripts pass every number as a Double, so primitives are unboxed
+     * through Number, and everything else is checked against its erased type.
+     * Each goes through one of the helpers below, which throw if the arg is the
+     * wrong type. "where" is the method and param name, for the error.
+     */
+    private String convertArg(TypeMirror type, String arg, String where) {
+        return switch (type.getKind()) {
+            case DOUBLE -> "num(" + arg + ", " + where + ").doubleValue()";
+            case FLOAT -> "num(" + arg + ", " + where + ").floatValue()";
+            case LONG -> "num(" + arg + ", " + where + ").longValue()";
+            case INT -> "num(" + arg + ", " + where + ").intValue()";
+            case SHORT -> "num(" + arg + ", " + where + ").shortValue()";
+            case BYTE -> "num(" + arg + ", " + where + ").byteValue()";
+            case BOOLEAN -> "bool(" + arg + ", " + where + ")";
+            case CHAR -> "chr(" + arg + ", " + where + ")";
+            default -> {
+                String erased = processingEnv.getTypeUtils().erasure(type).toString();
+                yield erased.equals("java.lang.Object") ? arg : "cast(" + arg + ", " + erased + ".class, " + where + ")";
+            }
+        };
+    }
+
+    //Written into every generated class, so the generated code doesn't depend on anything else of ours
+    private static final String HELPERS = """
+                private static Number num(Object arg, String method, String param) {
+                    if (arg instanceof Number n) return n;
+                    throw mismatch(arg, "num", method, param);
+                }
+
+                private static boolean bool(Object arg, String method, String param) {
+                    if (arg instanceof Boolean b) return b;
+                    throw mismatch(arg, "bool", method, param);
+                }
+
+                private static char chr(Object arg, String method, String param) {
+                    if (arg instanceof Character c) return c;
+                    throw mismatch(arg, "char", method, param);
+                }
+
+                private static <T> T cast(Object arg, Class<T> type, String method, String param) {
+                    if (arg == null || type.isInstance(arg)) return (T) arg;
+                    throw mismatch(arg, type.getSimpleName(), method, param);
+                }
+
+                private static PetPetException mismatch(Object arg, String expected, String method, String param) {
+                    String actual = arg == null ? "null" : arg.getClass().getSimpleName();
+                    return new PetPetException("Invalid argument \\"" + param + "\\" to " + method + ", expected " + expected + " but got " + actual);
+                }
+
+            """;
+
+    /**
+     * Likewise, every primitive number returned goes back to the script as a Double
+     */
+    private String convertReturn(TypeMirror type, String call) {
+        return switch (type.getKind()) {
+            case FLOAT, LONG, INT, SHORT, BYTE -> "(double) " + call;
+            default -> call;
+        };
+    }
+
+}
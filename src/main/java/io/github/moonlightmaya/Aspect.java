@@ -1,10 +1,12 @@
 package io.github.moonlightmaya;
 
+import io.github.moonlightmaya.animation.AnimationEngine;
 import io.github.moonlightmaya.data.BaseStructures;
 import io.github.moonlightmaya.model.AspectModelPart;
+import io.github.moonlightmaya.model.ModelPartIndex;
 import io.github.moonlightmaya.model.WorldRootModelPart;
+import io.github.moonlightmaya.particle.AspectParticles;
 import io.github.moonlightmaya.script.AspectScriptHandler;
-import io.github.moonlightmaya.script.events.EventHandler;
 import io.github.moonlightmaya.texture.AspectTexture;
 import io.github.moonlightmaya.util.AspectMatrixStack;
 import io.github.moonlightmaya.util.EntityUtils;
@@ -20,6 +22,7 @@ import net.minecraft.entity.Entity;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -35,6 +38,7 @@ public class Aspect {
      */
     public AspectModelPart entityRoot; private BaseStructures.ModelPartStructure entityRootData;
     public List<WorldRootModelPart> worldRoots;
+    public final ModelPartIndex partIndex = new ModelPartIndex(); //Every part by path, see ModelPartIndex
 
     //whether the aspect is finished loading in. Some processes are asynchronous relative to the constructor
     // (namely, loading textures), so we don't want to try setting this aspect until everything is ready
@@ -44,6 +48,9 @@ public class Aspect {
 
     public final Map<String, String> scripts;
 
+    public final AnimationEngine animations;
+    public final AspectParticles particles;
+
     public final VanillaRenderer vanillaRenderer = new VanillaRenderer();
     public final AspectScriptHandler scriptHandler;
 
@@ -53,6 +60,22 @@ public class Aspect {
 
     public final UUID aspectId; //uuid of this aspect itself
 
+    /**
+     * Tick scheduling state. The AspectManager decides how often this Aspect's
+     * scripts should tick (every tick when nearby, less often when far away or
+     * when the user isn't loaded), and the phase offsets which ticks those are.
+     * Phases are handed out round-robin, so Aspects sharing the same interval
+     * get spread evenly across game ticks instead of all ticking at once.
+     */
+    private static final AtomicInteger NEXT_TICK_PHASE = new AtomicInteger();
+    private final int tickPhase = NEXT_TICK_PHASE.getAndIncrement() & Integer.MAX_VALUE;
+    public int tickInterval = 1;
+    private long lastScriptTick = -1;
+    private int ticksSinceScriptTick; //Game ticks since the scripts last ticked, for interpolation
+
+    //Parts which scripts have given tick-rate targets, see AspectModelPart.tickPos()
+    private final List<AspectModelPart> interpolatedParts = new ArrayList<>();
+
     public Aspect(UUID userUUID, BaseStructures.AspectStructure materials) {
         this.userUUID = userUUID;
         this.aspectId = UUID.randomUUID();
@@ -71,6 +94,8 @@ public class Aspect {
         //Set the aspect to be ready, *after* all textures finish "uploadIfNeeded()"
         RenderUtils.executeOnRenderThread(() -> isReady = true);
 
+        particles = new AspectParticles(textures);
+
         //Save the entity root data
         entityRootData = materials.entityRoot();
 
@@ -79,6 +104,12 @@ public class Aspect {
         worldRoots = new ArrayList<>(materials.worldRoots().size());
         for (BaseStructures.ModelPartStructure worldRoot : materials.worldRoots())
             worldRoots.add(new WorldRootModelPart(worldRoot, this));
+        for (WorldRootModelPart worldRoot : worldRoots)
+            partIndex.addTree("world." + worldRoot.name, worldRoot);
+
+        //Animations for the world roots can be hooked up now, entity ones wait for the entity model
+        animations = new AnimationEngine(materials.animations());
+        animations.resolveWorld(worldRoots);
 
         //Separate out the list of script objects into a map instead
         //Names are keys, source is values
@@ -100,13 +131,18 @@ public class Aspect {
         //Discard the data after, no longer needed
         entityRoot = new AspectModelPart(entityRootData, this, null);
         entityRootData = null;
+        partIndex.addTree("entity", entityRoot);
+        animations.resolveEntity(entityRoot);
 
         //Notify the script
         scriptHandler.onEntityFirstLoad();
     }
 
     public void renderEntity(VertexConsumerProvider vcp, AspectMatrixStack matrixStack, int light) {
-        scriptHandler.callEvent(EventHandler.RENDER, MinecraftClient.getInstance().getTickDelta());
+        float tickDelta = MinecraftClient.getInstance().getTickDelta();
+        applyTickInterpolation(tickDelta);
+        updateAnimations(tickDelta);
+        scriptHandler.callEvent(scriptHandler.getEvents().render, tickDelta);
         matrixStack.multiply(vanillaRenderer.aspectModelTransform);
         entityRoot.render(vcp, matrixStack, light);
     }
@@ -115,6 +151,13 @@ public class Aspect {
         return aspectId;
     }
 
+    /**
+     * The user entity, or null if they aren't currently loaded.
+     */
+    public Entity getUser() {
+        return user;
+    }
+
     /**
      * When the entity first loads in, this aspect should finish creating its model.
      * The following booleans are based on:
@@ -124,12 +167,21 @@ public class Aspect {
     private boolean userEverLoaded;
     private Entity user;
     private ClientWorld lastWorld; //the last known world this aspect was in
-    public void tick(ClientWorld world) {
+
+    /**
+     * The bookkeeping half of a tick, run before runTickEvents(). Finds or loses the user, and calls the
+     * events related to that. Since this can end up building the model (on the
+     * user's first load) and touches the world's entity lookup, it must always
+     * run on the client thread.
+     */
+    public void prepareTick(ClientWorld world) {
+        ticksSinceScriptTick++;
         //If the world changed, change the global var
         if (world != lastWorld) {
             scriptHandler.setGlobal("world", world);
-            scriptHandler.callEvent(EventHandler.WORLD_CHANGE);
+            scriptHandler.callEvent(scriptHandler.getEvents().worldChange);
             lastWorld = world;
+            particles.clear(); //Particles belong to the world they were spawned in
         }
         if (world != null) {
             if (user != null) {
@@ -137,7 +189,7 @@ public class Aspect {
                 //Let's see if they've unloaded:
                 if (user.isRemoved() || user.world != world) {
                     //They've unloaded! Let's call the event, and set the user to null.
-                    scriptHandler.callEvent(EventHandler.USER_UNLOAD);
+                    scriptHandler.callEvent(scriptHandler.getEvents().userUnload);
                     scriptHandler.setGlobal("user", null);
                     user = null;
                 }
@@ -158,27 +210,97 @@ public class Aspect {
                     }
 
                     //Either way, first time or not, let's call their user_load
-                    scriptHandler.callEvent(EventHandler.USER_LOAD);
+                    scriptHandler.callEvent(scriptHandler.getEvents().userLoad);
                 }
             }
+        }
+
+        //Physics and particles step every game tick, even when the scripts are throttled
+        if (user != null)
+            animations.tickPhysics(user);
+        if (world != null)
+            particles.tick(world);
+    }
+
+    /**
+     * Whether this Aspect's scripts should tick on the given global tick,
+     * according to its current interval and phase.
+     */
+    public boolean isScheduledFor(long tick) {
+        return (tick + tickPhase) % tickInterval == 0;
+    }
+
+    /**
+     * The script half of a tick, run after prepareTick(). Only touches this Aspect's own script instance,
+     * so when parallel ticking is enabled, the AspectManager runs this on a worker
+     * thread while the client thread waits for every Aspect to finish.
+     *
+     * Since the scripts may not tick every game tick, the number of game ticks
+     * since they last ran is put in the "ticksElapsed" global, so they can scale
+     * their per-tick logic to compensate.
+     */
+    public void runTickEvents(long tick) {
+        if (lastWorld != null) {
+            long ticksElapsed = lastScriptTick < 0 ? 1 : tick - lastScriptTick;
+            scriptHandler.setGlobal("ticksElapsed", (double) ticksElapsed);
+            lastScriptTick = tick;
+
+            //The targets from last tick become the starting points for this one
+            ticksSinceScriptTick = 0;
+            for (AspectModelPart part : interpolatedParts)
+                part.rollTickInterpolation();
+
             if (user != null) {
                 //If the user is still here at the end of it all, let's tick() them
-                scriptHandler.callEvent(EventHandler.TICK);
+                scriptHandler.callEvent(scriptHandler.getEvents().tick);
             }
 
             //Always call world tick, if a world exists
-            scriptHandler.callEvent(EventHandler.WORLD_TICK);
+            scriptHandler.callEvent(scriptHandler.getEvents().worldTick);
+
+            //Timers and jobs go last, so they see everything the tick events did
+            scriptHandler.tickScheduler(ticksElapsed);
         }
     }
 
+    public void addInterpolatedPart(AspectModelPart part) {
+        interpolatedParts.add(part);
+    }
+
+    /**
+     * Move the interpolated parts to where they should be this frame.
+     * Since scripts may tick less often than every game tick (see tickInterval),
+     * the progress is spread across the whole interval rather than a single tick.
+     */
+    private void applyTickInterpolation(float tickDelta) {
+        if (interpolatedParts.isEmpty()) return;
+        float progress = Math.min(1f, (ticksSinceScriptTick + tickDelta) / tickInterval);
+        for (AspectModelPart part : interpolatedParts)
+            part.applyTickInterpolation(progress);
+    }
+
+    /**
+     * Animations and drivers are timed by the world clock, so they pause along with the game.
+     * Both entity and world rendering call this, the engine ignores the second call in a frame.
+     */
+    private void updateAnimations(float tickDelta) {
+        ClientWorld world = MinecraftClient.getInstance().world;
+        if (world != null)
+            animations.update(world.getTime() + tickDelta, user, tickDelta);
+    }
+
     /**
      * Render the world-parented parts
      */
     public void renderWorld(VertexConsumerProvider vcp, AspectMatrixStack matrixStack) {
-        scriptHandler.callEvent(EventHandler.WORLD_RENDER, MinecraftClient.getInstance().getTickDelta());
+        float tickDelta = MinecraftClient.getInstance().getTickDelta();
+        applyTickInterpolation(tickDelta);
+        updateAnimations(tickDelta);
+        scriptHandler.callEvent(scriptHandler.getEvents().worldRender, tickDelta);
         for (WorldRootModelPart worldRoot : worldRoots) {
             worldRoot.render(vcp, matrixStack);
         }
+        particles.render(vcp, matrixStack, tickDelta);
     }
 
     /**
@@ -0,0 +1,70 @@
+package io.github.moonlightmaya;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.github.moonlightmaya.script.ScriptLimits;
+import io.github.moonlightmaya.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Settings which are kept between sessions, saved as json in the mod folder.
+ * Changed through the /aspect commands, which save the file right away.
+ * Missing or broken files just give the defaults.
+ */
+public class AspectConfig {
+
+    private static final String FILE_NAME = "config.json";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static AspectConfig instance = new AspectConfig();
+
+    /**
+     * Whether Aspects far from the camera have their scripts ticked at a reduced rate.
+     * Off unless asked for, since it changes how often existing scripts run.
+     */
+    public boolean tickThrottling = false;
+
+    /**
+     * How much each user is trusted, see ScriptLimits. Read by script handlers
+     * as Aspects load, which may be off the client thread.
+     */
+    public ConcurrentHashMap<UUID, ScriptLimits.Trust> trust = new ConcurrentHashMap<>();
+
+    public static AspectConfig get() {
+        return instance;
+    }
+
+    public static void load() {
+        Path path = getPath();
+        if (path == null || Files.notExists(path)) return;
+        try {
+            AspectConfig loaded = GSON.fromJson(Files.readString(path), AspectConfig.class);
+            if (loaded != null) {
+                if (loaded.trust == null) loaded.trust = new ConcurrentHashMap<>();
+                instance = loaded;
+            }
+        } catch (IOException | RuntimeException e) { //Gson throws a few kinds for bad files
+            AspectMod.LOGGER.error("Failed to read config at " + path + ", using the defaults. Reason: ", e);
+        }
+    }
+
+    public static synchronized void save() {
+        Path path = getPath();
+        if (path == null) return;
+        try {
+            Files.writeString(path, GSON.toJson(instance));
+        } catch (IOException e) {
+            AspectMod.LOGGER.error("Failed to save config at " + path + ". Reason: ", e);
+        }
+    }
+
+    private static Path getPath() {
+        Path modFolder = IOUtils.getOrCreateModFolder();
+        return modFolder == null ? null : modFolder.resolve(FILE_NAME);
+    }
+}
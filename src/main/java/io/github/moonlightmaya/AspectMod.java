@@ -1,15 +1,23 @@
 package io.github.moonlightmaya;
 
+import com.mojang.brigadier.arguments.BoolArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
 import io.github.moonlightmaya.manage.AspectManager;
+import io.github.moonlightmaya.script.ScriptCompileCache;
+import io.github.moonlightmaya.script.ScriptLimits;
+import io.github.moonlightmaya.script.ScriptProfiler;
+import io.github.moonlightmaya.script.ScriptUsage;
+import io.github.moonlightmaya.script.apis.world.EntityGrid;
+import io.github.moonlightmaya.script.apis.world.WorldQueryCache;
 import io.github.moonlightmaya.util.DisplayUtils;
 import io.github.moonlightmaya.util.IOUtils;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.Entity;
 import net.minecraft.text.Text;
@@ -18,7 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import petpet.external.PetPetInstance;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Map;
 
 import static com.mojang.brigadier.builder.LiteralArgumentBuilder.literal;
 
@@ -45,8 +55,13 @@ public class AspectMod implements ClientModInitializer {
     public void onInitializeClient() {
         LOGGER.info("Hello Aspect!");
 
+        //Load saved settings
+        AspectConfig.load();
+        AspectManager.setTickThrottling(AspectConfig.get().tickThrottling);
+
         //Setup global ticking objects
         ClientTickEvents.START_WORLD_TICK.register(AspectManager::tick);
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> AspectManager.clearWorldCaches());
 
         //Register testing command
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
@@ -126,6 +141,129 @@ public class AspectMod implements ClientModInitializer {
             run.then(code);
             aspect.then(run);
 
+            LiteralArgumentBuilder<FabricClientCommandSource> parallel = literal("parallel");
+            RequiredArgumentBuilder<FabricClientCommandSource, Boolean> enabled = RequiredArgumentBuilder.argument("enabled", BoolArgumentType.bool());
+            enabled.executes(context -> {
+                boolean value = BoolArgumentType.getBool(context, "enabled");
+                AspectManager.setParallelTicking(value);
+                context.getSource().sendFeedback(Text.literal("Parallel Aspect ticking " + (value ? "enabled" : "disabled")));
+                return 1;
+            });
+            parallel.then(enabled);
+            aspect.then(parallel);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> throttle = literal("throttle");
+            RequiredArgumentBuilder<FabricClientCommandSource, Boolean> throttleEnabled = RequiredArgumentBuilder.argument("enabled", BoolArgumentType.bool());
+            throttleEnabled.executes(context -> {
+                boolean value = BoolArgumentType.getBool(context, "enabled");
+                AspectManager.setTickThrottling(value);
+                AspectConfig.get().tickThrottling = value;
+                AspectConfig.save();
+                context.getSource().sendFeedback(Text.literal("Distance-based Aspect tick throttling " + (value ? "enabled" : "disabled")));
+                return 1;
+            });
+            throttle.then(throttleEnabled);
+            aspect.then(throttle);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> usage = literal("usage");
+            usage.executes(context -> {
+                Entity player = MinecraftClient.getInstance().player;
+                Aspect playerAspect = AspectManager.getAspect(player.getUuid());
+                if (playerAspect == null) {
+                    context.getSource().sendError(Text.literal("No active Aspect"));
+                    return 0;
+                }
+                context.getSource().sendFeedback(Text.literal("Script usage (trust " + ScriptLimits.getTrust(player.getUuid()) + "):"));
+                for (Map.Entry<String, ScriptUsage> entry : playerAspect.scriptHandler.getUsage().entrySet())
+                    context.getSource().sendFeedback(Text.literal(entry.getKey() + ": " + entry.getValue()));
+                return 1;
+            });
+            aspect.then(usage);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> trust = literal("trust");
+            RequiredArgumentBuilder<FabricClientCommandSource, String> level = RequiredArgumentBuilder.argument("level", StringArgumentType.word());
+            level.executes(context -> {
+                //Applies to the targeted entity if there is one, otherwise to yourself
+                Entity target = context.getSource().getClient().targetedEntity;
+                if (target == null) target = MinecraftClient.getInstance().player;
+                ScriptLimits.Trust trustLevel;
+                try {
+                    trustLevel = ScriptLimits.Trust.valueOf(StringArgumentType.getString(context, "level").toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    context.getSource().sendError(Text.literal("Unknown trust level, expected low, default, high, or max"));
+                    return 0;
+                }
+                ScriptLimits.setTrust(target.getUuid(), trustLevel);
+                Aspect targetAspect = AspectManager.getAspect(target.getUuid());
+                if (targetAspect != null)
+                    targetAspect.scriptHandler.setLimits(trustLevel.limits);
+                context.getSource().sendFeedback(Text.literal("Set trust of " + target.getName().getString() + " to " + trustLevel));
+                return 1;
+            });
+            trust.then(level);
+            aspect.then(trust);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> compileCache = literal("compilecache");
+            compileCache.executes(context -> {
+                context.getSource().sendFeedback(Text.literal("Script compile cache: " + ScriptCompileCache.describe()));
+                return 1;
+            });
+            aspect.then(compileCache);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> entityGrid = literal("entitygrid");
+            entityGrid.executes(context -> {
+                context.getSource().sendFeedback(Text.literal("Entity grid: " + EntityGrid.describe()));
+                return 1;
+            });
+            aspect.then(entityGrid);
+
+            LiteralArgumentBuilder<FabricClientCommandSource> worldCache = literal("worldcache");
+            worldCache.executes(context -> {
+                context.getSource().sendFeedback(Text.literal("World query cache: " + WorldQueryCache.describe()));
+                return 1;
+            });
+            aspect.then(worldCache);
+
+            //Script profiler: start, stop, and dump as collapsed stacks. On its own, shows the top entries
+            LiteralArgumentBuilder<FabricClientCommandSource> profile = literal("profile");
+            profile.executes(context -> {
+                for (String line : ScriptProfiler.summary(10))
+                    context.getSource().sendFeedback(Text.literal(line));
+                return 1;
+            });
+            LiteralArgumentBuilder<FabricClientCommandSource> profileStart = literal("start");
+            profileStart.executes(context -> {
+                ScriptProfiler.start();
+                context.getSource().sendFeedback(Text.literal("Script profiler started"));
+                return 1;
+            });
+            profile.then(profileStart);
+            LiteralArgumentBuilder<FabricClientCommandSource> profileStop = literal("stop");
+            profileStop.executes(context -> {
+                ScriptProfiler.stop();
+                context.getSource().sendFeedback(Text.literal("Script profiler stopped"));
+                return 1;
+            });
+            profile.then(profileStop);
+            LiteralArgumentBuilder<FabricClientCommandSource> profileDump = literal("dump");
+            profileDump.executes(context -> {
+                Path modFolder = IOUtils.getOrCreateModFolder();
+                if (modFolder == null) {
+                    context.getSource().sendError(Text.literal("Could not find or create the mod folder"));
+                    return 0;
+                }
+                try {
+                    Path written = ScriptProfiler.dump(modFolder.resolve("profiles"));
+                    context.getSource().sendFeedback(Text.literal("Wrote script profile to " + IOUtils.trimPathStringToModFolder(written)));
+                    return 1;
+                } catch (IOException e) {
+                    context.getSource().sendError(Text.literal("Failed to write script profile: " + e.getMessage()));
+                    return 0;
+                }
+            });
+            profile.then(profileDump);
+            aspect.then(profile);
+
             dispatcher.register(aspect);
         });
 
@@ -0,0 +1,153 @@
+package io.github.moonlightmaya.animation;
+
+import io.github.moonlightmaya.data.BaseStructures;
+import io.github.moonlightmaya.model.AspectModelPart;
+import io.github.moonlightmaya.model.WorldRootModelPart;
+import net.minecraft.entity.Entity;
+import petpet.types.PetPetTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Plays an Aspect's blockbench animations, and evaluates its part drivers
+ * and physics chains. Once per frame, every part that any of these touch has
+ * its animation layer cleared, then each playing animation adds its weighted
+ * pose on top, followed by the drivers, then the physics.
+ * Scripts only ever start, stop and blend animations, none of the
+ * per-frame work goes through the interpreter.
+ */
+public class AnimationEngine {
+
+    private final List<AspectAnimation> animations;
+
+    private final List<PartDriver> drivers = new ArrayList<>();
+    private final List<PhysicsChain> chains = new ArrayList<>();
+
+    //The parts that any of the animations or drivers affect, so they can be reset each frame
+    private final LinkedHashSet<AspectModelPart> animatedParts = new LinkedHashSet<>();
+
+    private double lastClock = Double.NaN;
+
+    //Longest step taken in one update. Keeps animations from jumping after a lag spike.
+    private static final float MAX_STEP = 1;
+
+    public AnimationEngine(List<BaseStructures.Animation> data) {
+        animations = new ArrayList<>(data.size());
+        for (BaseStructures.Animation animation : data)
+            animations.add(new AspectAnimation(animation));
+    }
+
+    /**
+     * Hooks the world animations up to their world roots.
+     * World roots exist as soon as the Aspect does.
+     */
+    public void resolveWorld(List<WorldRootModelPart> worldRoots) {
+        for (AspectAnimation animation : animations) {
+            if (!animation.isWorld()) continue;
+            for (WorldRootModelPart root : worldRoots) {
+                if (root.name.equals(animation.model)) {
+                    animation.resolve(root);
+                    break;
+                }
+            }
+        }
+        collectParts();
+    }
+
+    /**
+     * Hooks the entity animations up to the entity model,
+     * once it's built on the user's first load.
+     */
+    public void resolveEntity(AspectModelPart entityRoot) {
+        for (AspectAnimation animation : animations) {
+            if (animation.isWorld()) continue;
+            AspectModelPart modelRoot = entityRoot.__get_str(animation.model);
+            if (modelRoot != null)
+                animation.resolve(modelRoot);
+        }
+        collectParts();
+    }
+
+    private void collectParts() {
+        List<AspectModelPart> parts = new ArrayList<>();
+        for (AspectAnimation animation : animations)
+            animation.collectParts(parts);
+        animatedParts.clear();
+        animatedParts.addAll(parts);
+        for (PartDriver driver : drivers)
+            animatedParts.add(driver.part);
+        for (PhysicsChain chain : chains)
+            Collections.addAll(animatedParts, chain.getParts());
+    }
+
+    public void addDriver(PartDriver driver) {
+        drivers.add(driver);
+        animatedParts.add(driver.part);
+    }
+
+    public void addChain(PhysicsChain chain) {
+        chains.add(chain);
+        Collections.addAll(animatedParts, chain.getParts());
+    }
+
+    /**
+     * Step the physics chains. Called every game tick, on the client
+     * thread, while the user is loaded.
+     */
+    public void tickPhysics(Entity user) {
+        if (chains.isEmpty()) return;
+        if (chains.removeIf(chain -> chain.removed))
+            collectParts();
+        for (PhysicsChain chain : chains)
+            chain.tick(user);
+    }
+
+    /**
+     * Advance and apply every animation, then the drivers if the user is loaded.
+     * The clock is in ticks, including the partial tick, so calling this
+     * again during the same frame does nothing.
+     */
+    public void update(double clock, Entity user, float tickDelta) {
+        if (clock == lastClock) return;
+        float seconds = Double.isNaN(lastClock) ? 0 : (float) Math.min(Math.max(clock - lastClock, 0) / 20, MAX_STEP);
+        lastClock = clock;
+
+        for (AspectModelPart part : animatedParts)
+            part.resetAnimation();
+        for (AspectAnimation animation : animations) {
+            animation.advance(seconds);
+            animation.apply();
+        }
+
+        if (!drivers.isEmpty()) {
+            if (drivers.removeIf(driver -> driver.removed))
+                collectParts();
+            if (user != null)
+                for (PartDriver driver : drivers)
+                    driver.apply(user, tickDelta, seconds);
+        }
+
+        for (PhysicsChain chain : chains)
+            chain.apply(tickDelta);
+    }
+
+    /**
+     * The animations as scripts see them: model name -> animation name -> animation
+     */
+    public PetPetTable<String, PetPetTable<String, AspectAnimation>> createTable() {
+        PetPetTable<String, PetPetTable<String, AspectAnimation>> table = new PetPetTable<>();
+        for (AspectAnimation animation : animations) {
+            PetPetTable<String, AspectAnimation> modelTable = table.get(animation.model);
+            if (modelTable == null) {
+                modelTable = new PetPetTable<>();
+                table.put(animation.model, modelTable);
+            }
+            modelTable.put(animation.name, animation);
+        }
+        return table;
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.github.moonlightmaya.animation;
+
+import io.github.moonlightmaya.data.BaseStructures;
+import io.github.moonlightmaya.model.AspectModelPart;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * The keyframes of one animation for one model part, unpacked into flat
+ * arrays per channel so sampling them each frame doesn't allocate or chase
+ * pointers through lists of records.
+ */
+class AnimationTrack {
+
+    final AspectModelPart part;
+
+    //Indexed by BaseStructures.Keyframe channel. Null if that channel has no keyframes.
+    private final float[][] times = new float[3][];
+    private final float[][] values = new float[3][]; //xyz interleaved
+    private final byte[][] interpolations = new byte[3][];
+
+    AnimationTrack(AspectModelPart part, BaseStructures.Animator animator) {
+        this.part = part;
+        List<BaseStructures.Keyframe> keyframes = animator.keyframes();
+        for (byte channel = 0; channel < 3; channel++) {
+            int count = 0;
+            for (BaseStructures.Keyframe keyframe : keyframes)
+                if (keyframe.channel() == channel) count++;
+            if (count == 0) continue;
+
+            float[] t = new float[count];
+            float[] v = new float[count * 3];
+            byte[] interp = new byte[count];
+            int i = 0;
+            for (BaseStructures.Keyframe keyframe : keyframes) {
+                if (keyframe.channel() != channel) continue;
+                Vector3f value = keyframe.value();
+                t[i] = keyframe.time();
+                interp[i] = keyframe.interpolation();
+                //Convert from blockbench's space into ours. Blockbench positions
+                //are in pixels, and its x and y rotations and x position are mirrored.
+                switch (channel) {
+                    case BaseStructures.Keyframe.POSITION -> {
+                        v[i * 3] = -value.x / 16;
+                        v[i * 3 + 1] = value.y / 16;
+                        v[i * 3 + 2] = value.z / 16;
+                    }
+                    case BaseStructures.Keyframe.ROTATION -> {
+                        v[i * 3] = -value.x;
+                        v[i * 3 + 1] = -value.y;
+                        v[i * 3 + 2] = value.z;
+                    }
+                    default -> {
+                        v[i * 3] = value.x;
+                        v[i * 3 + 1] = value.y;
+                        v[i * 3 + 2] = value.z;
+                    }
+                }
+                i++;
+            }
+            times[channel] = t;
+            values[channel] = v;
+            interpolations[channel] = interp;
+        }
+    }
+
+    /**
+     * Samples the channel at the given time into dest.
+     * Returns false, leaving dest alone, if the channel has no keyframes.
+     */
+    boolean sample(int channel, float time, Vector3f dest) {
+        float[] t = times[channel];
+        if (t == null) return false;
+        float[] v = values[channel];
+        int n = t.length;
+
+        //Before the first or after the last keyframe, hold it
+        if (n == 1 || time <= t[0]) {
+            dest.set(v[0], v[1], v[2]);
+            return true;
+        }
+        if (time >= t[n - 1]) {
+            dest.set(v[(n - 1) * 3], v[(n - 1) * 3 + 1], v[(n - 1) * 3 + 2]);
+            return true;
+        }
+
+        //Binary search for the segment [i, i+1] containing the time
+        int lo = 0, hi = n - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (t[mid] <= time) lo = mid;
+            else hi = mid;
+        }
+        int i = lo;
+        float span = t[i + 1] - t[i];
+        float f = span > 0 ? (time - t[i]) / span : 0;
+
+        switch (interpolations[channel][i]) {
+            case BaseStructures.Keyframe.STEP -> dest.set(v[i * 3], v[i * 3 + 1], v[i * 3 + 2]);
+            case BaseStructures.Keyframe.CATMULLROM -> {
+                int i0 = Math.max(i - 1, 0), i3 = Math.min(i + 2, n - 1);
+                dest.set(
+                        catmullRom(v[i0 * 3], v[i * 3], v[(i + 1) * 3], v[i3 * 3], f),
+                        catmullRom(v[i0 * 3 + 1], v[i * 3 + 1], v[(i + 1) * 3 + 1], v[i3 * 3 + 1], f),
+                        catmullRom(v[i0 * 3 + 2], v[i * 3 + 2], v[(i + 1) * 3 + 2], v[i3 * 3 + 2], f)
+                );
+            }
+            default -> dest.set(
+                    v[i * 3] + (v[(i + 1) * 3] - v[i * 3]) * f,
+                    v[i * 3 + 1] + (v[(i + 1) * 3 + 1] - v[i * 3 + 1]) * f,
+                    v[i * 3 + 2] + (v[(i + 1) * 3 + 2] - v[i * 3 + 2]) * f
+            );
+        }
+        return true;
+    }
+
+    private static float catmullRom(float p0, float p1, float p2, float p3, float t) {
+        float t2 = t * t, t3 = t2 * t;
+        return 0.5f * (2 * p1 + (p2 - p0) * t + (2 * p0 - 5 * p1 + 4 * p2 - p3) * t2 + (3 * p1 - p0 - 3 * p2 + p3) * t3);
+    }
+
+}
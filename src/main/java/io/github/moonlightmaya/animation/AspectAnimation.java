@@ -0,0 +1,182 @@
+package io.github.moonlightmaya.animation;
+
+import io.github.moonlightmaya.data.BaseStructures;
+import io.github.moonlightmaya.model.AspectModelPart;
+import org.joml.Vector3f;
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.PetPetException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blockbench animation, as scripts see it.
+ * Scripts only control the playback state, the AnimationEngine does the
+ * actual sampling and blending natively each frame.
+ */
+@PetPetWhitelist
+public class AspectAnimation {
+
+    @PetPetWhitelist
+    public final String name;
+    @PetPetWhitelist
+    public final String model;
+    @PetPetWhitelist
+    public final double length;
+
+    private final BaseStructures.Animation data;
+    //Empty until the parts this animation affects exist, see resolve()
+    private final List<AnimationTrack> tracks = new ArrayList<>();
+
+    private byte loop;
+    private boolean playing, paused;
+    private float time, speed = 1, weight = 1;
+
+    //Temp vectors for sampling, shared since sampling only happens on the render thread
+    private static final Vector3f tempPos = new Vector3f(), tempRot = new Vector3f(), tempScale = new Vector3f();
+
+    public AspectAnimation(BaseStructures.Animation data) {
+        this.data = data;
+        this.name = data.name();
+        this.model = data.model();
+        this.length = data.length();
+        this.loop = data.loop();
+    }
+
+    public boolean isWorld() {
+        return data.world();
+    }
+
+    /**
+     * Find the parts affected by this animation, starting from the part for
+     * this animation's bbmodel. Animators whose parts don't exist are skipped.
+     */
+    public void resolve(AspectModelPart modelRoot) {
+        tracks.clear();
+        for (BaseStructures.Animator animator : data.animators()) {
+            AspectModelPart part = modelRoot;
+            //path.get(0) is the bbmodel part itself
+            for (int i = 1; i < animator.path().size() && part != null; i++)
+                part = part.__get_str(animator.path().get(i));
+            if (part != null)
+                tracks.add(new AnimationTrack(part, animator));
+        }
+    }
+
+    void collectParts(List<AspectModelPart> out) {
+        for (AnimationTrack track : tracks)
+            out.add(track.part);
+    }
+
+    /**
+     * Move the animation forward by the given number of seconds.
+     */
+    void advance(float seconds) {
+        if (!playing || paused) return;
+        time += seconds * speed;
+        if (time >= length || time < 0) {
+            switch (loop) {
+                case BaseStructures.Animation.LOOP_LOOP -> time = length > 0 ? (float) (((time % length) + length) % length) : 0;
+                case BaseStructures.Animation.LOOP_HOLD -> time = (float) Math.max(0, Math.min(time, length));
+                default -> { //once
+                    playing = false;
+                    time = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add this animation's pose at its current time into the animation layers of its parts.
+     */
+    void apply() {
+        if (!playing || weight == 0) return;
+        for (AnimationTrack track : tracks) {
+            boolean hasPos = track.sample(BaseStructures.Keyframe.POSITION, time, tempPos);
+            boolean hasRot = track.sample(BaseStructures.Keyframe.ROTATION, time, tempRot);
+            boolean hasScale = track.sample(BaseStructures.Keyframe.SCALE, time, tempScale);
+            track.part.addAnimation(hasPos ? tempPos : null, hasRot ? tempRot : null, hasScale ? tempScale : null, weight);
+        }
+    }
+
+    boolean isActive() {
+        return playing;
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public AspectAnimation play() {
+        if (!playing) time = speed < 0 ? (float) length : 0;
+        playing = true;
+        paused = false;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation stop() {
+        playing = false;
+        paused = false;
+        time = 0;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation pause() {
+        paused = true;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation restart() {
+        stop();
+        return play();
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation speed(double speed) {
+        this.speed = (float) speed;
+        return this;
+    }
+
+    /**
+     * How strongly this animation affects the parts, when blending with others
+     */
+    @PetPetWhitelist
+    public AspectAnimation weight(double weight) {
+        this.weight = (float) weight;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation loop(String mode) {
+        loop = switch (mode) {
+            case "once" -> BaseStructures.Animation.LOOP_ONCE;
+            case "hold" -> BaseStructures.Animation.LOOP_HOLD;
+            case "loop" -> BaseStructures.Animation.LOOP_LOOP;
+            default -> throw new PetPetException("Unknown loop mode " + mode + ", expected once, hold, or loop");
+        };
+        return this;
+    }
+
+    @PetPetWhitelist
+    public AspectAnimation time(double time) {
+        this.time = (float) time;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public double getTime() {
+        return time;
+    }
+
+    @PetPetWhitelist
+    public boolean isPlaying() {
+        return playing && !paused;
+    }
+
+    @Override
+    public String toString() {
+        return "Animation(" + model + "." + name + ")";
+    }
+}
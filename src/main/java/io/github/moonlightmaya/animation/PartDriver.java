@@ -0,0 +1,146 @@
+package io.github.moonlightmaya.animation;
+
+import io.github.moonlightmaya.model.AspectModelPart;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.util.math.MathHelper;
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.PetPetException;
+
+/**
+ * Drives one axis of a part's transform from a property of the entity,
+ * like head yaw or limb swing. Evaluated natively by the AnimationEngine
+ * each frame, into the part's animation layer, so the common case of
+ * "copy this entity value onto that part" needs no render script at all.
+ *
+ * output = clamp(property * scale + offset, min, max), then smoothed.
+ */
+@PetPetWhitelist
+public class PartDriver {
+
+    /**
+     * The entity properties a driver can read, all interpolated with the tick delta.
+     * Angles are in degrees.
+     */
+    public enum Property {
+        HEAD_YAW((e, d) -> e instanceof LivingEntity l ? MathHelper.wrapDegrees(MathHelper.lerp(d, l.prevHeadYaw, l.headYaw) - MathHelper.lerp(d, l.prevBodyYaw, l.bodyYaw)) : 0),
+        HEAD_PITCH((e, d) -> e.getPitch(d)),
+        BODY_YAW((e, d) -> e instanceof LivingEntity l ? MathHelper.lerp(d, l.prevBodyYaw, l.bodyYaw) : e.getYaw(d)),
+        YAW((e, d) -> e.getYaw(d)),
+        LIMB_SWING((e, d) -> e instanceof LivingEntity l ? l.limbAngle - l.limbDistance * (1 - d) : 0),
+        LIMB_SWING_AMOUNT((e, d) -> e instanceof LivingEntity l ? Math.min(MathHelper.lerp(d, l.lastLimbDistance, l.limbDistance), 1) : 0),
+        //Velocities are from the change in position, since the client doesn't know most entities' real velocity
+        VELOCITY_X((e, d) -> e.getX() - e.prevX),
+        VELOCITY_Y((e, d) -> e.getY() - e.prevY),
+        VELOCITY_Z((e, d) -> e.getZ() - e.prevZ),
+        SPEED((e, d) -> Math.sqrt((e.getX() - e.prevX) * (e.getX() - e.prevX) + (e.getZ() - e.prevZ) * (e.getZ() - e.prevZ))),
+        AGE((e, d) -> e.age + d);
+
+        private final Getter getter;
+        Property(Getter getter) {
+            this.getter = getter;
+        }
+
+        @FunctionalInterface
+        private interface Getter {
+            double get(Entity entity, float tickDelta);
+        }
+    }
+
+    final AspectModelPart part;
+    private final Property property;
+    private final int channel, axis;
+
+    private float scale = 1, offset = 0;
+    private float min = Float.NEGATIVE_INFINITY, max = Float.POSITIVE_INFINITY;
+    private float smoothing = 0; //Fraction of the old value kept each tick, 0 is no smoothing
+    private float value;
+    private boolean hasValue;
+    boolean removed;
+
+    /**
+     * Target is a channel and axis, like "rot_y", "pos_x", or "scale_z".
+     */
+    public PartDriver(AspectModelPart part, String property, String target) {
+        this.part = part;
+        try {
+            this.property = Property.valueOf(property.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PetPetException("Unknown driver property " + property);
+        }
+        int split = target.indexOf('_');
+        if (split < 0 || split != target.length() - 2)
+            throw new PetPetException("Invalid driver target " + target + ", expected something like rot_y");
+        channel = switch (target.substring(0, split)) {
+            case "pos" -> AspectModelPart.ANIM_POS;
+            case "rot" -> AspectModelPart.ANIM_ROT;
+            case "scale" -> AspectModelPart.ANIM_SCALE;
+            default -> throw new PetPetException("Invalid driver target " + target + ", expected pos, rot, or scale");
+        };
+        axis = switch (target.charAt(split + 1)) {
+            case 'x' -> 0;
+            case 'y' -> 1;
+            case 'z' -> 2;
+            default -> throw new PetPetException("Invalid driver target " + target + ", expected axis x, y, or z");
+        };
+    }
+
+    /**
+     * Read the property and add the result into the part's animation layer
+     */
+    void apply(Entity entity, float tickDelta, float seconds) {
+        float target = (float) property.getter.get(entity, tickDelta) * scale + offset;
+        target = MathHelper.clamp(target, min, max);
+        if (!hasValue || smoothing == 0) {
+            value = target;
+            hasValue = true;
+        } else {
+            //Frame rate independent exponential smoothing
+            float keep = (float) Math.pow(smoothing, seconds * 20);
+            value = target + (value - target) * keep;
+        }
+        part.addAnimationAxis(channel, axis, value);
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public PartDriver scale(double scale) {
+        this.scale = (float) scale;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PartDriver offset(double offset) {
+        this.offset = (float) offset;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PartDriver clamp(double min, double max) {
+        this.min = (float) min;
+        this.max = (float) max;
+        return this;
+    }
+
+    /**
+     * 0 follows the property exactly, closer to 1 follows it more slowly
+     */
+    @PetPetWhitelist
+    public PartDriver smooth(double smoothing) {
+        if (smoothing < 0 || smoothing >= 1)
+            throw new PetPetException("Driver smoothing must be at least 0 and less than 1");
+        this.smoothing = (float) smoothing;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public void remove() {
+        removed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "Driver(" + part.name + ", " + property.name().toLowerCase() + ")";
+    }
+}
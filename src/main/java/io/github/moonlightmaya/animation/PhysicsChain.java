@@ -0,0 +1,167 @@
+package io.github.moonlightmaya.animation;
+
+import io.github.moonlightmaya.model.AspectModelPart;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.util.math.MathHelper;
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.PetPetException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spring physics for a chain of parts, like a tail, hair, or ears.
+ *
+ * Each segment swings on two axes (x and z rotation, relative to its parent),
+ * integrated with verlet once per tick. The springs pull each segment back to
+ * its rest pose, gravity droops it, and the user's movement and turning push
+ * it the other way, so the chain trails behind. Each segment also lags behind
+ * the swinging of the one before it, which gives the whip-like follow through.
+ *
+ * State is kept in flat arrays per chain, and the render-time work is just an
+ * interpolation per segment, so hundreds of chains are cheap.
+ */
+@PetPetWhitelist
+public class PhysicsChain {
+
+    private final AspectModelPart[] parts;
+
+    //Angles in degrees, [segment * 2] is x, [segment * 2 + 1] is z
+    private final float[] angles, prevAngles, oldAngles;
+
+    private float stiffness = 0.15f; //Spring strength, per tick squared
+    private float damping = 0.2f; //Fraction of velocity lost each tick
+    private float gravity = 0; //Degrees per tick squared pulled along +x
+    private float inertia = 1; //How strongly the user's motion pushes the chain
+    private float follow = 0.5f; //How much each segment lags behind the swing of its parent
+    private static final float MAX_ANGLE = 120;
+
+    //Last tick's user motion, to get accelerations from
+    private double lastForward, lastSide, lastUp;
+    private float lastBodyYaw;
+    private boolean hasLastMotion;
+    boolean removed;
+
+    public PhysicsChain(List<AspectModelPart> parts) {
+        if (parts.isEmpty())
+            throw new PetPetException("Physics chain needs at least one part");
+        this.parts = parts.toArray(new AspectModelPart[0]);
+        angles = new float[this.parts.length * 2];
+        prevAngles = new float[angles.length];
+        oldAngles = new float[angles.length];
+    }
+
+    AspectModelPart[] getParts() {
+        return parts;
+    }
+
+    /**
+     * One verlet step. Called every game tick on the client thread.
+     */
+    void tick(Entity user) {
+        //The user's motion in their own body space: forward, sideways and up
+        float bodyYaw = user instanceof LivingEntity living ? living.bodyYaw : user.getYaw();
+        double dx = user.getX() - user.prevX, dy = user.getY() - user.prevY, dz = user.getZ() - user.prevZ;
+        double yawRad = Math.toRadians(bodyYaw);
+        double sin = Math.sin(yawRad), cos = Math.cos(yawRad);
+        double forward = -dx * sin + dz * cos;
+        double side = dx * cos + dz * sin;
+
+        //Accelerations of the body, pushing the chain the opposite way
+        float pushX = 0, pushZ = 0, turn = 0;
+        if (hasLastMotion) {
+            pushX = (float) ((forward - lastForward) * 16 + (dy - lastUp) * 8) * inertia * MathHelper.DEGREES_PER_RADIAN;
+            pushZ = (float) (side - lastSide) * 16 * inertia * MathHelper.DEGREES_PER_RADIAN;
+            turn = MathHelper.wrapDegrees(bodyYaw - lastBodyYaw) * inertia;
+        }
+        lastForward = forward;
+        lastSide = side;
+        lastUp = dy;
+        lastBodyYaw = bodyYaw;
+        hasLastMotion = true;
+
+        System.arraycopy(prevAngles, 0, oldAngles, 0, angles.length);
+        System.arraycopy(angles, 0, prevAngles, 0, angles.length);
+
+        float parentSwingX = 0, parentSwingZ = 0;
+        for (int i = 0; i < parts.length; i++) {
+            int x = i * 2, z = x + 1;
+            float velX = (angles[x] - oldAngles[x]) * (1 - damping);
+            float velZ = (angles[z] - oldAngles[z]) * (1 - damping);
+            float accX = -stiffness * angles[x] + gravity + pushX - parentSwingX * follow;
+            float accZ = -stiffness * angles[z] + pushZ + turn - parentSwingZ * follow;
+            angles[x] = MathHelper.clamp(angles[x] + velX + accX, -MAX_ANGLE, MAX_ANGLE);
+            angles[z] = MathHelper.clamp(angles[z] + velZ + accZ, -MAX_ANGLE, MAX_ANGLE);
+            parentSwingX = angles[x] - prevAngles[x];
+            parentSwingZ = angles[z] - prevAngles[z];
+        }
+    }
+
+    /**
+     * Add the interpolated angles into the parts' animation layers
+     */
+    void apply(float tickDelta) {
+        for (int i = 0; i < parts.length; i++) {
+            int x = i * 2, z = x + 1;
+            parts[i].addAnimationAxis(AspectModelPart.ANIM_ROT, 0, MathHelper.lerp(tickDelta, prevAngles[x], angles[x]));
+            parts[i].addAnimationAxis(AspectModelPart.ANIM_ROT, 2, MathHelper.lerp(tickDelta, prevAngles[z], angles[z]));
+        }
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public PhysicsChain stiffness(double stiffness) {
+        this.stiffness = (float) stiffness;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PhysicsChain damping(double damping) {
+        if (damping < 0 || damping > 1)
+            throw new PetPetException("Physics damping must be between 0 and 1");
+        this.damping = (float) damping;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PhysicsChain gravity(double gravity) {
+        this.gravity = (float) gravity;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PhysicsChain inertia(double inertia) {
+        this.inertia = (float) inertia;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public PhysicsChain follow(double follow) {
+        this.follow = (float) follow;
+        return this;
+    }
+
+    /**
+     * Snap the chain back to its rest pose
+     */
+    @PetPetWhitelist
+    public PhysicsChain reset() {
+        Arrays.fill(angles, 0);
+        Arrays.fill(prevAngles, 0);
+        Arrays.fill(oldAngles, 0);
+        hasLastMotion = false;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public void remove() {
+        removed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "PhysicsChain(" + parts[0].name + ", " + parts.length + " parts)";
+    }
+}
@@ -8,6 +8,7 @@ import org.joml.Vector4f;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,11 +23,21 @@ import java.util.List;
  */
 public class BaseStructures {
 
+    /**
+     * The original format ends after the scripts. Anything added since comes after
+     * that, behind this marker and a format version, so older readers just stop
+     * before it, and files without it (from older exporters) load with no animations.
+     * Each version only appends sections after the previous ones.
+     */
+    private static final int EXTENSION_MARKER = 0x41535058; //"ASPX"
+    public static final int FORMAT_VERSION = 1; //1: animations
+
     public record AspectStructure(
             ModelPartStructure entityRoot,
             List<ModelPartStructure> worldRoots,
             List<Texture> textures,
-            List<Script> scripts
+            List<Script> scripts,
+            List<Animation> animations
     ) {
         public void write(DataOutputStream out) throws IOException {
             entityRoot.write(out);
@@ -39,6 +50,11 @@ public class BaseStructures {
 
             out.writeInt(scripts.size());
             for (Script script : scripts) script.write(out);
+
+            out.writeInt(EXTENSION_MARKER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(animations.size());
+            for (Animation animation : animations) animation.write(out);
         }
 
         public static AspectStructure read(DataInputStream in) throws IOUtils.AspectIOException {
@@ -59,13 +75,38 @@ public class BaseStructures {
                 List<Script> scripts = numScripts > 0 ? new ArrayList<>(numScripts) : List.of();
                 for (int i = 0; i < numScripts; i++)
                     scripts.add(Script.read(in));
+
+                List<Animation> animations = List.of();
+                int version = readFormatVersion(in);
+                if (version >= 1) {
+                    int numAnimations = in.readInt();
+                    animations = numAnimations > 0 ? new ArrayList<>(numAnimations) : List.of();
+                    for (int i = 0; i < numAnimations; i++)
+                        animations.add(Animation.read(in));
+                }
                 return new AspectStructure(
-                        entityRoot, worldRoots, textures, scripts
+                        entityRoot, worldRoots, textures, scripts, animations
                 );
             } catch (IOException e) {
                 throw new IOUtils.AspectIOException(e);
             }
         }
+
+        /**
+         * Reads the marker and version after the scripts, or returns 0 if the
+         * data ends there or continues with something else (the original format).
+         */
+        private static int readFormatVersion(DataInputStream in) throws IOException {
+            int marker;
+            try {
+                marker = in.readInt();
+            } catch (EOFException e) {
+                return 0;
+            }
+            if (marker != EXTENSION_MARKER) return 0;
+            //Newer versions only add sections after the ones we know, so those still read fine
+            return in.readInt();
+        }
     }
 
     public record ModelPartStructure(
@@ -211,4 +252,104 @@ public class BaseStructures {
         }
     }
 
+    /**
+     * A blockbench animation, belonging to one bbmodel.
+     * The model is the name of the bbmodel file, which is also
+     * the name of that bbmodel's part under the entity root
+     * (or of the world root, if world is true).
+     */
+    public record Animation(
+            String name,
+            String model,
+            boolean world,
+            float length, //seconds
+            byte loop, //LOOP_ONCE, LOOP_HOLD, LOOP_LOOP
+            List<Animator> animators
+    ) {
+        public static final byte LOOP_ONCE = 0, LOOP_HOLD = 1, LOOP_LOOP = 2;
+
+        public void write(DataOutputStream out) throws IOException {
+            out.writeUTF(name);
+            out.writeUTF(model);
+            out.writeBoolean(world);
+            out.writeFloat(length);
+            out.writeByte(loop);
+            out.writeInt(animators.size());
+            for (Animator animator : animators)
+                animator.write(out);
+        }
+
+        public static Animation read(DataInputStream in) throws IOException {
+            String name = in.readUTF();
+            String model = in.readUTF();
+            boolean world = in.readBoolean();
+            float length = in.readFloat();
+            byte loop = in.readByte();
+            int numAnimators = in.readInt();
+            List<Animator> animators = numAnimators > 0 ? new ArrayList<>(numAnimators) : List.of();
+            for (int i = 0; i < numAnimators; i++)
+                animators.add(Animator.read(in));
+            return new Animation(name, model, world, length, loop, animators);
+        }
+    }
+
+    /**
+     * The keyframes of one animation affecting one part.
+     * The path is the names of the parts leading to it, starting
+     * with the bbmodel's part. Keyframes are sorted by time.
+     */
+    public record Animator(
+            List<String> path,
+            List<Keyframe> keyframes
+    ) {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeInt(path.size());
+            for (String name : path)
+                out.writeUTF(name);
+            out.writeInt(keyframes.size());
+            for (Keyframe keyframe : keyframes)
+                keyframe.write(out);
+        }
+
+        public static Animator read(DataInputStream in) throws IOException {
+            int pathLength = in.readInt();
+            List<String> path = new ArrayList<>(pathLength);
+            for (int i = 0; i < pathLength; i++)
+                path.add(in.readUTF());
+            int numKeyframes = in.readInt();
+            List<Keyframe> keyframes = numKeyframes > 0 ? new ArrayList<>(numKeyframes) : List.of();
+            for (int i = 0; i < numKeyframes; i++)
+                keyframes.add(Keyframe.read(in));
+            return new Animator(path, keyframes);
+        }
+    }
+
+    /**
+     * Values are as blockbench shows them: pixels for position, degrees for rotation.
+     */
+    public record Keyframe(
+            byte channel, //POSITION, ROTATION, SCALE
+            byte interpolation, //LINEAR, CATMULLROM, STEP
+            float time, //seconds
+            Vector3f value
+    ) {
+        public static final byte POSITION = 0, ROTATION = 1, SCALE = 2;
+        public static final byte LINEAR = 0, CATMULLROM = 1, STEP = 2;
+
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(channel);
+            out.writeByte(interpolation);
+            out.writeFloat(time);
+            IOUtils.writeVector3f(out, value);
+        }
+
+        public static Keyframe read(DataInputStream in) throws IOException {
+            byte channel = in.readByte();
+            byte interpolation = in.readByte();
+            float time = in.readFloat();
+            Vector3f value = IOUtils.readVector3f(in);
+            return new Keyframe(channel, interpolation, time, value);
+        }
+    }
+
 }
@@ -35,6 +35,7 @@ public class AspectImporter {
 
     private LinkedHashMap<String, BaseStructures.Texture> textures;
     private List<BaseStructures.Script> scripts;
+    private final List<BaseStructures.Animation> animations = new ArrayList<>();
     private int textureOffset;
 
     public AspectImporter(Path aspectFolder) {
@@ -64,7 +65,8 @@ public class AspectImporter {
                 result.complete(new BaseStructures.AspectStructure(
                         entityRoot, worldRoots,
                         Lists.newArrayList(textures.values()),
-                        scripts
+                        scripts,
+                        animations
                 ));
             } catch (Exception e) {
                 result.completeExceptionally(e);
@@ -109,6 +111,7 @@ public class AspectImporter {
             bbmodel.fixedOutliner = bbmodel.getGson().fromJson(bbmodel.outliner, JsonStructures.Part[].class);
             String fileName = f.getName().substring(0, f.getName().length() - ".bbmodel".length()); //remove .bbmodel
             bbmodels.add(handleBBModel(bbmodel, fileName));
+            animations.addAll(bbmodel.getAnimations(fileName, false));
         }
         return new BaseStructures.ModelPartStructure(
                 "entity", new Vector3f(), new Vector3f(), new Vector3f(), true,
@@ -127,6 +130,7 @@ public class AspectImporter {
             bbmodel.fixedOutliner = bbmodel.getGson().fromJson(bbmodel.outliner, JsonStructures.Part[].class);
             String fileName = f.getName().substring(0, f.getName().length() - ".bbmodel".length()); //remove .bbmodel
             bbmodels.add(handleBBModel(bbmodel, fileName));
+            animations.addAll(bbmodel.getAnimations(fileName, true));
         }
         return bbmodels;
     }
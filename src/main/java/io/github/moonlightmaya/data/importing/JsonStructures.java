@@ -17,6 +17,7 @@ public class JsonStructures {
         public JsonArray outliner;
         public Part[] fixedOutliner;
         public Texture[] textures;
+        public Animation[] animations;
 
         public Gson getGson() {
             return new GsonBuilder()
@@ -25,6 +26,105 @@ public class JsonStructures {
                     .registerTypeAdapter(Part.class, new OutlinerPartDeserializer(this))
                     .create();
         }
+
+        /**
+         * Converts the animations in this bbmodel. Must be called after
+         * fixedOutliner is set, since animators refer to groups by uuid.
+         */
+        public List<BaseStructures.Animation> getAnimations(String fileName, boolean world) {
+            if (animations == null) return List.of();
+            Map<String, List<String>> uuidPaths = new HashMap<>();
+            List<String> rootPath = List.of(fileName);
+            for (Part part : fixedOutliner)
+                collectPaths(part, rootPath, uuidPaths);
+            List<BaseStructures.Animation> result = new ArrayList<>(animations.length);
+            for (Animation animation : animations)
+                result.add(animation.toBaseStructure(fileName, world, uuidPaths));
+            return result;
+        }
+
+        private static void collectPaths(Part part, List<String> parentPath, Map<String, List<String>> uuidPaths) {
+            if (part == null) return;
+            List<String> path = new ArrayList<>(parentPath);
+            path.add(part.name());
+            if (part.uuid() != null)
+                uuidPaths.put(part.uuid(), path);
+            if (part.children() != null)
+                for (Part child : part.children())
+                    collectPaths(child, path, uuidPaths);
+        }
+    }
+
+    public record Animation(String name, String loop, float length, Map<String, Animator> animators) {
+        public BaseStructures.Animation toBaseStructure(String fileName, boolean world, Map<String, List<String>> uuidPaths) {
+            byte loopMode = switch (loop == null ? "once" : loop) {
+                case "hold" -> BaseStructures.Animation.LOOP_HOLD;
+                case "loop" -> BaseStructures.Animation.LOOP_LOOP;
+                default -> BaseStructures.Animation.LOOP_ONCE;
+            };
+            List<BaseStructures.Animator> baseAnimators = new ArrayList<>();
+            if (animators != null) {
+                for (Map.Entry<String, Animator> entry : animators.entrySet()) {
+                    List<String> path = uuidPaths.get(entry.getKey());
+                    if (path == null || entry.getValue().keyframes() == null) continue; //effects animator, or a deleted group
+                    baseAnimators.add(entry.getValue().toBaseStructure(path));
+                }
+            }
+            return new BaseStructures.Animation(name, fileName, world, length, loopMode, baseAnimators);
+        }
+    }
+
+    public record Animator(String name, String type, Keyframe[] keyframes) {
+        public BaseStructures.Animator toBaseStructure(List<String> path) {
+            List<BaseStructures.Keyframe> baseKeyframes = new ArrayList<>(keyframes.length);
+            for (Keyframe keyframe : keyframes) {
+                BaseStructures.Keyframe base = keyframe.toBaseStructure();
+                if (base != null)
+                    baseKeyframes.add(base);
+            }
+            baseKeyframes.sort(Comparator.comparingDouble(BaseStructures.Keyframe::time));
+            return new BaseStructures.Animator(path, baseKeyframes);
+        }
+    }
+
+    public record Keyframe(String channel, JsonObject[] data_points, float time, String interpolation) {
+        //Null if the keyframe is for a channel we don't animate (sounds, particles...)
+        public BaseStructures.Keyframe toBaseStructure() {
+            byte baseChannel;
+            switch (channel == null ? "" : channel) {
+                case "position" -> baseChannel = BaseStructures.Keyframe.POSITION;
+                case "rotation" -> baseChannel = BaseStructures.Keyframe.ROTATION;
+                case "scale" -> baseChannel = BaseStructures.Keyframe.SCALE;
+                default -> { return null; }
+            }
+            byte baseInterpolation = switch (interpolation == null ? "linear" : interpolation) {
+                case "catmullrom" -> BaseStructures.Keyframe.CATMULLROM;
+                case "step" -> BaseStructures.Keyframe.STEP;
+                default -> BaseStructures.Keyframe.LINEAR; //bezier isn't supported yet, treated as linear
+            };
+            float defaultValue = baseChannel == BaseStructures.Keyframe.SCALE ? 1 : 0;
+            Vector3f value = new Vector3f(defaultValue);
+            if (data_points != null && data_points.length > 0) {
+                JsonObject point = data_points[0];
+                value.set(
+                        parseDataPoint(point.get("x"), defaultValue),
+                        parseDataPoint(point.get("y"), defaultValue),
+                        parseDataPoint(point.get("z"), defaultValue)
+                );
+            }
+            return new BaseStructures.Keyframe(baseChannel, baseInterpolation, time, value);
+        }
+
+        //Blockbench stores these as strings, since they can be molang. Molang isn't supported, so it becomes the default.
+        private static float parseDataPoint(JsonElement element, float defaultValue) {
+            if (element == null || element.isJsonNull()) return defaultValue;
+            try {
+                String str = element.getAsString().trim();
+                return str.isEmpty() ? defaultValue : Float.parseFloat(str);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
     }
 
     public record Resolution(int width, int height) {}
@@ -4,6 +4,9 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import io.github.moonlightmaya.Aspect;
 import io.github.moonlightmaya.data.BaseStructures;
 import io.github.moonlightmaya.data.importing.AspectImporter;
+import io.github.moonlightmaya.script.apis.world.BlockInfo;
+import io.github.moonlightmaya.script.apis.world.EntityGrid;
+import io.github.moonlightmaya.script.apis.world.WorldQueryCache;
 import io.github.moonlightmaya.util.AspectMatrixStack;
 import io.github.moonlightmaya.util.EntityUtils;
 import net.minecraft.client.MinecraftClient;
@@ -17,9 +20,7 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -46,6 +47,41 @@ public class AspectManager {
      */
     private static final ConcurrentLinkedQueue<Runnable> TASKS = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Side effects which were requested off the client thread (chat messages
+     * from worker threads or async loading, for example) and need to be
+     * applied on it. Drained at the end of every tick, after all Aspects
+     * have finished ticking.
+     */
+    private static final ConcurrentLinkedQueue<Runnable> DEFERRED_EFFECTS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether to run the script half of each Aspect's tick concurrently.
+     * Each Aspect has its own PetPet instance, so their script states never
+     * overlap. While the workers run, the client thread waits at the barrier
+     * and doesn't touch the world, so world and entity reads made by scripts
+     * see a stable snapshot of the game state.
+     * Off by default, toggled with /aspect parallel.
+     */
+    private static boolean parallelTicking = false;
+    private static ExecutorService tickExecutor; //created the first time parallel ticking is used
+    private static final List<Callable<Object>> PARALLEL_TASKS = new ArrayList<>();
+
+    /**
+     * Tick scheduling. Aspects whose users are far from the camera, or not loaded
+     * at all, have their scripts ticked at a reduced rate. The intervals are powers
+     * of two so that staggered Aspects line up evenly over the game ticks.
+     * Opt-in, from the config or /aspect throttle, since it changes how often scripts run.
+     */
+    private static boolean tickThrottling = false;
+    private static long tickCount = 0;
+    private static final List<Aspect> SCHEDULED = new ArrayList<>();
+
+    private static final double FULL_RATE_DISTANCE = 32, HALF_RATE_DISTANCE = 64;
+    private static final int FULL_RATE = 1, HALF_RATE = 2, QUARTER_RATE = 4, UNLOADED_RATE = 8;
+
+    private static ClientWorld lastWorld;
+
     /**
      * Global tick method for the aspect manager. Called each client tick.
      */
@@ -61,9 +97,123 @@ public class AspectManager {
             TASKS.poll().run(); //Poll the task and run it
         }
 
-        //Tick each Aspect
-        for (Aspect aspect : ASPECTS.values())
-            aspect.tick(world);
+        //The shared entity grid is rebuilt the first time a script queries it this tick,
+        //and world query answers are only remembered for the tick they were asked in
+        EntityGrid.invalidate();
+        WorldQueryCache.invalidate();
+        if (world != lastWorld) {
+            clearWorldCaches();
+            lastWorld = world;
+        }
+
+        //Tick each Aspect. The bookkeeping half always happens here on the client thread,
+        //since it may need to build models or call into vanilla.
+        //Afterwards, figure out which Aspects' scripts should run this tick.
+        tickCount++;
+        SCHEDULED.clear();
+        Entity camera = MinecraftClient.getInstance().getCameraEntity();
+        for (Aspect aspect : ASPECTS.values()) {
+            aspect.prepareTick(world);
+            aspect.tickInterval = tickThrottling ? getTickInterval(aspect, camera) : FULL_RATE;
+            if (aspect.isScheduledFor(tickCount))
+                SCHEDULED.add(aspect);
+        }
+
+        //Then run the scripts, either one after another or spread across the worker pool
+        if (parallelTicking && SCHEDULED.size() > 1)
+            runTickEventsParallel();
+        else
+            for (Aspect aspect : SCHEDULED)
+                aspect.runTickEvents(tickCount);
+
+        //Apply any side effects that were queued from other threads
+        Runnable effect;
+        while ((effect = DEFERRED_EFFECTS.poll()) != null)
+            effect.run();
+    }
+
+    /**
+     * Drops everything cached about the current world, so nothing keeps it alive
+     * once it's gone. Called when the world changes and when the client disconnects,
+     * since no more ticks come after a disconnect to notice the world is gone.
+     */
+    public static void clearWorldCaches() {
+        //Block tags come from the server, so cached block info is only good for one world
+        BlockInfo.clear();
+        EntityGrid.clear();
+        WorldQueryCache.clear();
+        lastWorld = null;
+    }
+
+    /**
+     * Submits every Aspect's tick events to the worker pool, and waits until
+     * all of them are done. Errors in scripts are already caught by the script
+     * handlers, so anything thrown here is a bug in Aspect itself.
+     */
+    private static void runTickEventsParallel() {
+        if (tickExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            tickExecutor = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread thread = new Thread(r, "Aspect Tick Worker #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        PARALLEL_TASKS.clear();
+        for (Aspect aspect : SCHEDULED)
+            PARALLEL_TASKS.add(Executors.callable(() -> aspect.runTickEvents(tickCount)));
+        try {
+            for (Future<Object> result : tickExecutor.invokeAll(PARALLEL_TASKS))
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while ticking Aspects in parallel", e.getCause());
+        }
+    }
+
+    public static void setParallelTicking(boolean parallel) {
+        parallelTicking = parallel;
+    }
+
+    public static boolean isParallelTicking() {
+        return parallelTicking;
+    }
+
+    /**
+     * Decides how many game ticks should pass between script ticks of the given Aspect.
+     * The camera's own Aspect always ticks at full rate.
+     */
+    private static int getTickInterval(Aspect aspect, @Nullable Entity camera) {
+        Entity user = aspect.getUser();
+        if (user == null)
+            return UNLOADED_RATE;
+        if (camera == null || user == camera)
+            return FULL_RATE;
+        double distSquared = user.squaredDistanceTo(camera);
+        if (distSquared <= FULL_RATE_DISTANCE * FULL_RATE_DISTANCE)
+            return FULL_RATE;
+        if (distSquared <= HALF_RATE_DISTANCE * HALF_RATE_DISTANCE)
+            return HALF_RATE;
+        return QUARTER_RATE;
+    }
+
+    public static void setTickThrottling(boolean throttling) {
+        tickThrottling = throttling;
+    }
+
+    /**
+     * Runs the given side effect on the client thread. If we're already on it,
+     * this happens immediately, otherwise it's queued until the end of the
+     * current (or next) tick.
+     */
+    public static void runOnMainThread(Runnable effect) {
+        if (RenderSystem.isOnRenderThread())
+            effect.run();
+        else
+            DEFERRED_EFFECTS.add(effect);
     }
 
     /**
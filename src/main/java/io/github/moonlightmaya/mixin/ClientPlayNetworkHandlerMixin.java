@@ -0,0 +1,26 @@
+package io.github.moonlightmaya.mixin;
+
+import io.github.moonlightmaya.script.apis.world.BlockInfo;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.SynchronizeTagsS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientPlayNetworkHandler.class)
+public class ClientPlayNetworkHandlerMixin {
+
+    /**
+     * The server sends new tags on join, and again whenever its data packs
+     * are reloaded (a /reload in singleplayer, for example), without the world
+     * changing. Cached block info holds tag lists, so it's dropped here.
+     * At TAIL, this only runs on the client thread, after the tags are applied;
+     * the call from the network thread leaves early to reschedule itself.
+     */
+    @Inject(method = "onSynchronizeTags", at = @At("TAIL"))
+    public void afterSynchronizeTags(SynchronizeTagsS2CPacket packet, CallbackInfo ci) {
+        BlockInfo.clear();
+    }
+
+}
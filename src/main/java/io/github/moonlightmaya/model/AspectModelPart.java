@@ -2,6 +2,8 @@ package io.github.moonlightmaya.model;
 
 import com.google.common.collect.ImmutableList;
 import io.github.moonlightmaya.Aspect;
+import io.github.moonlightmaya.animation.PartDriver;
+import io.github.moonlightmaya.animation.PhysicsChain;
 import io.github.moonlightmaya.data.BaseStructures;
 import io.github.moonlightmaya.texture.AspectTexture;
 import io.github.moonlightmaya.util.AspectMatrixStack;
@@ -42,6 +44,15 @@ public class AspectModelPart {
     public final Vector3f partPos = new Vector3f();
     public final Quaternionf partRot = new Quaternionf();
     public final Vector3f partScale = new Vector3f(1, 1, 1);
+
+    //The animation layer. Written by the animation engine each frame, on top of the
+    //part's own transform. Position is in blocks, rotation is Euler degrees (applied ZYX
+    //like blockbench does), scale multiplies. Only used while animated is true.
+    public final Vector3f animPos = new Vector3f();
+    public final Vector3f animRot = new Vector3f();
+    public final Vector3f animScale = new Vector3f(1, 1, 1);
+    private boolean animated;
+    public static final int ANIM_POS = 0, ANIM_ROT = 1, ANIM_SCALE = 2;
     @PetPetWhitelist
     public Boolean visible = null;
 
@@ -61,6 +72,9 @@ public class AspectModelPart {
 
     public final Aspect owningAspect; //The aspect that this model part is inside
 
+    //Tick-rate targets set by tickPos() and friends, null until a script first uses them
+    private TickInterpolation interpolation;
+
     public AspectModelPart(BaseStructures.ModelPartStructure baseStructure, Aspect owningAspect, AspectModelPart parent) {
         this.owningAspect = owningAspect;
         name = baseStructure.name();
@@ -81,9 +95,12 @@ public class AspectModelPart {
         setPivot(baseStructure.pivot());
         if (baseStructure.children() != null) {
             children = new PetPetList<>(baseStructure.children().size());
+            childrenByName = new HashMap<>();
             for (BaseStructures.ModelPartStructure child : baseStructure.children()) {
                 //all children are owned by the same aspect
-                children.add(new AspectModelPart(child, owningAspect, this));
+                AspectModelPart childPart = new AspectModelPart(child, owningAspect, this);
+                children.add(childPart);
+                childrenByName.putIfAbsent(childPart.name, childPart);
             }
         }
 
@@ -173,6 +190,91 @@ public class AspectModelPart {
         needsMatrixRecalculation = true;
     }
 
+    public void setRotQuaternion(float x, float y, float z, float w) {
+        partRot.set(x, y, z, w);
+        needsMatrixRecalculation = true;
+    }
+
+    /**
+     * Clears the animation layer, ready for this frame's animations to add to it.
+     */
+    public void resetAnimation() {
+        if (animated) {
+            animPos.zero();
+            animRot.zero();
+            animScale.set(1, 1, 1);
+            animated = false;
+            needsMatrixRecalculation = true;
+        }
+    }
+
+    /**
+     * Adds to the animation layer. Scale is blended by weight towards 1,
+     * so a half-weight animation scaling to 2 scales to 1.5.
+     */
+    public void addAnimation(Vector3f pos, Vector3f rot, Vector3f scale, float weight) {
+        if (pos != null) animPos.fma(weight, pos);
+        if (rot != null) animRot.fma(weight, rot);
+        if (scale != null) {
+            animScale.x *= 1 + (scale.x - 1) * weight;
+            animScale.y *= 1 + (scale.y - 1) * weight;
+            animScale.z *= 1 + (scale.z - 1) * weight;
+        }
+        animated = true;
+        needsMatrixRecalculation = true;
+    }
+
+    /**
+     * Adds to a single axis of the animation layer, for drivers
+     */
+    public void addAnimationAxis(int channel, int axis, float value) {
+        switch (channel) {
+            case ANIM_POS -> animPos.setComponent(axis, animPos.get(axis) + value);
+            case ANIM_ROT -> animRot.setComponent(axis, animRot.get(axis) + value);
+            case ANIM_SCALE -> animScale.setComponent(axis, animScale.get(axis) * value);
+        }
+        animated = true;
+        needsMatrixRecalculation = true;
+    }
+
+    private TickInterpolation getInterpolation() {
+        if (interpolation == null) {
+            interpolation = new TickInterpolation();
+            owningAspect.addInterpolatedPart(this);
+        }
+        return interpolation;
+    }
+
+    /**
+     * Stops tick interpolation of the given transforms, because something set them
+     * directly. Both the script setters and ModelPose go through this, so a direct
+     * set isn't overwritten by interpolation on the next frame.
+     */
+    void stopInterpolation(boolean pos, boolean rot, boolean scale) {
+        if (interpolation == null) return;
+        if (pos) interpolation.pos = false;
+        if (rot) interpolation.rot = false;
+        if (scale) interpolation.scale = false;
+    }
+
+    /**
+     * Called by the Aspect at the start of each script tick,
+     * before the scripts set the new targets.
+     */
+    public void rollTickInterpolation() {
+        if (interpolation != null)
+            interpolation.roll();
+    }
+
+    /**
+     * Called by the Aspect each frame, before rendering.
+     * Progress is how far we are between the last script tick and the next, in [0, 1].
+     */
+    public void applyTickInterpolation(float progress) {
+        if (interpolation != null && interpolation.isActive())
+            interpolation.apply(this, progress);
+    }
+
     /**
      * Generates render data from cube data
      * Including the vertices and the render layers
@@ -298,11 +400,22 @@ public class AspectModelPart {
                 positionMatrix.mul(tempMatrixSavedTransform);
             }
 
-            positionMatrix
-                    .rotate(partRot)
-                    .scale(partScale)
-                    .translate(partPos)
-                    .translate(-partPivot.x, -partPivot.y, -partPivot.z);
+            if (animated) {
+                float s = (float) (Math.PI / 180);
+                positionMatrix
+                        .rotate(partRot)
+                        .rotateZYX(animRot.z * s, animRot.y * s, animRot.x * s)
+                        .scale(partScale)
+                        .scale(animScale)
+                        .translate(partPos.x + animPos.x, partPos.y + animPos.y, partPos.z + animPos.z)
+                        .translate(-partPivot.x, -partPivot.y, -partPivot.z);
+            } else {
+                positionMatrix
+                        .rotate(partRot)
+                        .scale(partScale)
+                        .translate(partPos)
+                        .translate(-partPivot.x, -partPivot.y, -partPivot.z);
+            }
 
             //Scale the pivot value back up again
             partPivot.mul(16f);
@@ -421,6 +534,7 @@ public class AspectModelPart {
     //Setters
     @PetPetWhitelist
     public AspectModelPart pos_3(double x, double y, double z) {
+        stopInterpolation(true, false, false);
         setPos((float) x, (float) y, (float) z);
         return this;
     }
@@ -431,12 +545,14 @@ public class AspectModelPart {
 
     @PetPetWhitelist
     public AspectModelPart rot_3(double x, double y, double z) {
+        stopInterpolation(false, true, false);
         setRot((float) x, (float) y, (float) z);
         return this;
     }
     @PetPetWhitelist
     public AspectModelPart rot_1(Object r) {
         if (r instanceof Quaterniond quat) {
+            stopInterpolation(false, true, false);
             setRot(quat);
             return this;
         } else if (r instanceof Vector3d v) {
@@ -448,6 +564,7 @@ public class AspectModelPart {
 
     @PetPetWhitelist
     public AspectModelPart scale_3(double x, double y, double z) {
+        stopInterpolation(false, false, true);
         setScale((float) x, (float) y, (float) z);
         return this;
     }
@@ -465,6 +582,96 @@ public class AspectModelPart {
         return piv_3(v.x, v.y, v.z);
     }
 
+    //Tick-rate setters. Call these during tick, and the part will move smoothly
+    //towards the given value over the following frames, instead of needing to be
+    //set every frame in render. Calling the regular setter for the same transform
+    //stops the interpolation.
+    @PetPetWhitelist
+    public AspectModelPart tickPos_3(double x, double y, double z) {
+        TickInterpolation interp = getInterpolation();
+        if (!interp.pos) {
+            interp.pos = true;
+            interp.prevPos.set(partPos);
+        }
+        interp.targetPos.set((float) x, (float) y, (float) z);
+        return this;
+    }
+    @PetPetWhitelist
+    public AspectModelPart tickPos_1(Vector3d v) {
+        return tickPos_3(v.x, v.y, v.z);
+    }
+
+    @PetPetWhitelist
+    public AspectModelPart tickRot_3(double x, double y, double z) {
+        TickInterpolation interp = getInterpolation();
+        if (!interp.rot) {
+            interp.rot = true;
+            interp.prevRot.set(partRot);
+        }
+        float s = (float) (Math.PI / 180);
+        interp.targetRot.rotationXYZ((float) x * s, (float) y * s, (float) z * s);
+        return this;
+    }
+    @PetPetWhitelist
+    public AspectModelPart tickRot_1(Object r) {
+        if (r instanceof Quaterniond quat) {
+            tickRot_3(0, 0, 0); //Activate the channel
+            interpolation.targetRot.set(quat);
+            return this;
+        } else if (r instanceof Vector3d v) {
+            return tickRot_3(v.x, v.y, v.z);
+        }
+        throw new PetPetException("Attempt to call tickRot() with object that is not vec3 or quat. type is " + r.getClass().getSimpleName());
+    }
+
+    @PetPetWhitelist
+    public AspectModelPart tickScale_3(double x, double y, double z) {
+        TickInterpolation interp = getInterpolation();
+        if (!interp.scale) {
+            interp.scale = true;
+            interp.prevScale.set(partScale);
+        }
+        interp.targetScale.set((float) x, (float) y, (float) z);
+        return this;
+    }
+    @PetPetWhitelist
+    public AspectModelPart tickScale_1(Vector3d v) {
+        return tickScale_3(v.x, v.y, v.z);
+    }
+
+    /**
+     * Drive one axis of this part from a property of the user entity, evaluated
+     * natively each frame. For example, driver("head_yaw", "rot_y").
+     * Positions are in blocks, rotations in degrees, and scale multiplies.
+     */
+    @PetPetWhitelist
+    public PartDriver driver(String property, String target) {
+        PartDriver driver = new PartDriver(this, property, target);
+        owningAspect.animations.addDriver(driver);
+        return driver;
+    }
+
+    /**
+     * Attach spring physics to a chain of parts, starting with this one and
+     * following the first child down, up to the given number of parts.
+     */
+    @PetPetWhitelist
+    public PhysicsChain physics_1(int length) {
+        List<AspectModelPart> chain = new ArrayList<>();
+        AspectModelPart part = this;
+        while (part != null && chain.size() < length) {
+            chain.add(part);
+            part = part.hasChildren() && !part.children.isEmpty() ? part.children.get(0) : null;
+        }
+        PhysicsChain physics = new PhysicsChain(chain);
+        owningAspect.animations.addChain(physics);
+        return physics;
+    }
+    @PetPetWhitelist
+    public PhysicsChain physics_0() {
+        return physics_1(Integer.MAX_VALUE);
+    }
+
     @PetPetWhitelist
     public String bbType() {
         return type.name();
@@ -497,18 +704,12 @@ public class AspectModelPart {
         return this;
     }
 
-    private HashMap<String, AspectModelPart> cachedPartMap;
+    //Children by name, built with the children. If names repeat, the first child wins.
+    private Map<String, AspectModelPart> childrenByName;
     @PetPetWhitelist
     public AspectModelPart __get_str(String arg) {
-        if (children == null) return null;
-        if (cachedPartMap == null) cachedPartMap = new HashMap<>();
-        return cachedPartMap.computeIfAbsent(arg, s -> {
-            for (AspectModelPart child : children) {
-                if (child.name.equals(s))
-                    return child;
-            }
-            return null;
-        });
+        if (childrenByName == null) return null;
+        return childrenByName.get(arg);
     }
 
     @PetPetWhitelist
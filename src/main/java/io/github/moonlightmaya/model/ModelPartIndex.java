@@ -0,0 +1,122 @@
+package io.github.moonlightmaya.model;
+
+import petpet.external.PetPetWhitelist;
+import petpet.types.PetPetList;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * An index of every part in an Aspect, by path.
+ * Paths are dotted, and mirror the models table scripts already use,
+ * so models.entity.body.head is "entity.body.head", and a world root
+ * named "sign" is "world.sign". Parts with a name that's unique in the
+ * Aspect can also be found by that name alone.
+ *
+ * The index lets scripts resolve the parts they need once, up front,
+ * instead of walking the tree with a lookup per level each time.
+ */
+@PetPetWhitelist
+public class ModelPartIndex {
+
+    private final Map<String, AspectModelPart> byPath = new LinkedHashMap<>();
+    private final Map<String, AspectModelPart> byName = new HashMap<>();
+    private final Set<String> ambiguousNames = new HashSet<>();
+
+    /**
+     * Index the given part and everything below it, with the given path for the part itself.
+     * When siblings share a name, the first one gets the path, matching how
+     * part.name lookups resolve (see AspectModelPart's childrenByName).
+     * Parts under a sibling that lost its path aren't reachable by path
+     * either, but can still be found by a unique name.
+     */
+    public void addTree(String path, AspectModelPart part) {
+        addTree(path, part, false);
+    }
+
+    private void addTree(String path, AspectModelPart part, boolean shadowed) {
+        if (!shadowed && byPath.putIfAbsent(path, part) != null)
+            shadowed = true;
+        if (!ambiguousNames.contains(part.name)) {
+            if (byName.putIfAbsent(part.name, part) != null) {
+                byName.remove(part.name);
+                ambiguousNames.add(part.name);
+            }
+        }
+        if (part.children != null)
+            for (AspectModelPart child : part.children)
+                addTree(path + "." + child.name, child, shadowed);
+    }
+
+    /**
+     * Turns a glob into a regex. * matches within one path segment, ** matches across segments.
+     */
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^.]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^.]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    /**
+     * The part at the full path, or else the part with that unique name. Nil if neither exists.
+     */
+    @PetPetWhitelist
+    public AspectModelPart get(String pathOrName) {
+        AspectModelPart part = byPath.get(pathOrName);
+        return part != null ? part : byName.get(pathOrName);
+    }
+
+    /**
+     * Every part whose path matches the glob, in tree order
+     */
+    @PetPetWhitelist
+    public PetPetList<AspectModelPart> find(String glob) {
+        Pattern pattern = compileGlob(glob);
+        PetPetList<AspectModelPart> result = new PetPetList<>();
+        for (Map.Entry<String, AspectModelPart> entry : byPath.entrySet())
+            if (pattern.matcher(entry.getKey()).matches())
+                result.add(entry.getValue());
+        return result;
+    }
+
+    /**
+     * The part at the path, and every part below it, in tree order
+     */
+    @PetPetWhitelist
+    public PetPetList<AspectModelPart> prefix(String path) {
+        String below = path + ".";
+        PetPetList<AspectModelPart> result = new PetPetList<>();
+        for (Map.Entry<String, AspectModelPart> entry : byPath.entrySet())
+            if (entry.getKey().equals(path) || entry.getKey().startsWith(below))
+                result.add(entry.getValue());
+        return result;
+    }
+
+    @PetPetWhitelist
+    public PetPetList<String> paths() {
+        PetPetList<String> result = new PetPetList<>(byPath.size());
+        result.addAll(byPath.keySet());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PartIndex(" + byPath.size() + " parts)";
+    }
+}
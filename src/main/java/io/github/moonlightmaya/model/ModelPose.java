@@ -0,0 +1,165 @@
+package io.github.moonlightmaya.model;
+
+import org.joml.Quaternionf;
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.JavaFunction;
+import petpet.lang.run.PetPetException;
+import petpet.types.PetPetList;
+
+import java.util.List;
+
+/**
+ * A fixed list of parts whose transforms can be set all at once.
+ *
+ * Animating many parts from a script otherwise means a pos(), rot() and
+ * scale() call per part, every frame. With a pose, the script makes a single
+ * call with all the numbers packed into one list, and the loop over the parts
+ * happens here. A pose can also capture the parts' current transforms and
+ * re-apply them later. None of this allocates once the pose is created.
+ */
+@PetPetWhitelist
+public class ModelPose {
+
+    //Global function for scripts, pose(listOfParts)
+    public static final JavaFunction CREATE = new JavaFunction(ModelPose.class, "create", false);
+
+    private final AspectModelPart[] parts;
+
+    //Captured transforms, 3 floats of pos, 4 of rotation quaternion, 3 of scale per part
+    private final float[] captured;
+    private boolean hasCapture;
+
+    private static final int POS = 0, ROT = 3, SCALE = 7, STRIDE = 10;
+
+    //Scripts can put anything in the list, so each element is checked
+    public ModelPose(List<?> parts) {
+        this.parts = new AspectModelPart[parts.size()];
+        for (int i = 0; i < this.parts.length; i++) {
+            Object part = parts.get(i);
+            if (part == null)
+                throw new PetPetException("Attempt to create pose with a nil part");
+            if (!(part instanceof AspectModelPart modelPart))
+                throw new PetPetException("Attempt to create pose with a non-part value at index " + i + ", type is " + part.getClass().getSimpleName());
+            this.parts[i] = modelPart;
+        }
+        captured = new float[this.parts.length * STRIDE];
+    }
+
+    public static ModelPose create(PetPetList<?> parts) {
+        return new ModelPose(parts);
+    }
+
+    private void checkSize(List<?> values, int perPart, String name) {
+        if (values.size() != parts.length * perPart)
+            throw new PetPetException(name + "() expected " + parts.length * perPart + " numbers (" + perPart + " per part) but got " + values.size());
+    }
+
+    private static float get(List<?> values, int index) {
+        Object value = values.get(index);
+        if (!(value instanceof Number number))
+            throw new PetPetException("Expected a number at index " + index + " of pose values, but got " + (value == null ? "nil" : value.getClass().getSimpleName()));
+        return number.floatValue();
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    /**
+     * Set pos, rot and scale of every part: 9 numbers per part, in the
+     * order pos xyz, rot xyz (degrees), scale xyz.
+     */
+    @PetPetWhitelist
+    public ModelPose apply_1(PetPetList<?> values) {
+        checkSize(values, 9, "apply");
+        for (int i = 0; i < parts.length; i++) {
+            int j = i * 9;
+            AspectModelPart part = parts[i];
+            part.stopInterpolation(true, true, true);
+            part.setPos(get(values, j), get(values, j + 1), get(values, j + 2));
+            part.setRot(get(values, j + 3), get(values, j + 4), get(values, j + 5));
+            part.setScale(get(values, j + 6), get(values, j + 7), get(values, j + 8));
+        }
+        return this;
+    }
+
+    /**
+     * Re-apply the transforms from the last capture()
+     */
+    @PetPetWhitelist
+    public ModelPose apply_0() {
+        if (!hasCapture)
+            throw new PetPetException("Attempt to apply pose before capturing it");
+        for (int i = 0; i < parts.length; i++) {
+            int j = i * STRIDE;
+            AspectModelPart part = parts[i];
+            part.stopInterpolation(true, true, true);
+            part.setPos(captured[j + POS], captured[j + POS + 1], captured[j + POS + 2]);
+            part.setRotQuaternion(captured[j + ROT], captured[j + ROT + 1], captured[j + ROT + 2], captured[j + ROT + 3]);
+            part.setScale(captured[j + SCALE], captured[j + SCALE + 1], captured[j + SCALE + 2]);
+        }
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ModelPose applyPos_1(PetPetList<?> values) {
+        checkSize(values, 3, "applyPos");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i].stopInterpolation(true, false, false);
+            parts[i].setPos(get(values, i * 3), get(values, i * 3 + 1), get(values, i * 3 + 2));
+        }
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ModelPose applyRot_1(PetPetList<?> values) {
+        checkSize(values, 3, "applyRot");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i].stopInterpolation(false, true, false);
+            parts[i].setRot(get(values, i * 3), get(values, i * 3 + 1), get(values, i * 3 + 2));
+        }
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ModelPose applyScale_1(PetPetList<?> values) {
+        checkSize(values, 3, "applyScale");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i].stopInterpolation(false, false, true);
+            parts[i].setScale(get(values, i * 3), get(values, i * 3 + 1), get(values, i * 3 + 2));
+        }
+        return this;
+    }
+
+    /**
+     * Save the parts' current transforms, to apply() later
+     */
+    @PetPetWhitelist
+    public ModelPose capture() {
+        for (int i = 0; i < parts.length; i++) {
+            int j = i * STRIDE;
+            AspectModelPart part = parts[i];
+            captured[j + POS] = part.partPos.x;
+            captured[j + POS + 1] = part.partPos.y;
+            captured[j + POS + 2] = part.partPos.z;
+            Quaternionf rot = part.partRot;
+            captured[j + ROT] = rot.x;
+            captured[j + ROT + 1] = rot.y;
+            captured[j + ROT + 2] = rot.z;
+            captured[j + ROT + 3] = rot.w;
+            captured[j + SCALE] = part.partScale.x;
+            captured[j + SCALE + 1] = part.partScale.y;
+            captured[j + SCALE + 2] = part.partScale.z;
+        }
+        hasCapture = true;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public double size() {
+        return parts.length;
+    }
+
+    @Override
+    public String toString() {
+        return "Pose(" + parts.length + " parts)";
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.moonlightmaya.model;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Tick-rate transform targets for a single model part.
+ * Scripts set targets during tick, and each frame the part's actual
+ * transform is interpolated between the previous target and the
+ * current one using the tick delta. Rotations are slerped.
+ *
+ * Only created for parts which scripts have actually called tickPos()
+ * and friends on, so plain parts pay nothing for this.
+ */
+class TickInterpolation {
+
+    final Vector3f prevPos = new Vector3f(), targetPos = new Vector3f();
+    final Quaternionf prevRot = new Quaternionf(), targetRot = new Quaternionf();
+    final Vector3f prevScale = new Vector3f(1, 1, 1), targetScale = new Vector3f(1, 1, 1);
+
+    //Which of the channels are currently being interpolated
+    boolean pos, rot, scale;
+
+    /**
+     * Called at the start of each script tick. Whatever was the target
+     * last tick is where we interpolate from this tick.
+     */
+    void roll() {
+        prevPos.set(targetPos);
+        prevRot.set(targetRot);
+        prevScale.set(targetScale);
+    }
+
+    /**
+     * Write the interpolated values into the part. Progress is in [0, 1].
+     */
+    void apply(AspectModelPart part, float progress) {
+        if (pos)
+            prevPos.lerp(targetPos, progress, part.partPos);
+        if (rot)
+            prevRot.slerp(targetRot, progress, part.partRot);
+        if (scale)
+            prevScale.lerp(targetScale, progress, part.partScale);
+        part.needsMatrixRecalculation = true;
+    }
+
+    boolean isActive() {
+        return pos || rot || scale;
+    }
+
+}
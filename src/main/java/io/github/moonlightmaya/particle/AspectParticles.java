@@ -0,0 +1,250 @@
+package io.github.moonlightmaya.particle;
+
+import io.github.moonlightmaya.texture.AspectTexture;
+import io.github.moonlightmaya.util.AspectMatrixStack;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.*;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.LightType;
+import org.joml.Matrix4d;
+import org.joml.Quaternionf;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import petpet.external.PetPetWhitelist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An Aspect's particles. Every particle lives in one pool of parallel arrays
+ * (struct of arrays), so simulating and drawing thousands of them is a few
+ * tight loops with no objects per particle. Dead particles are swapped with
+ * the last live one, so the live particles are always indices [0, count).
+ *
+ * Particles are simulated each game tick, and drawn as camera facing quads
+ * interpolated between ticks, with one buffer (render layer) per texture.
+ */
+@PetPetWhitelist
+public class AspectParticles {
+
+    public static final int MAX_PARTICLES = 10000;
+
+    private final List<AspectTexture> textures;
+    private final RenderLayer[] layers;
+    private final int[] countPerTexture;
+
+    private final List<ParticleEmitter> emitters = new ArrayList<>();
+    private final Random random = new Random();
+    private ClientWorld world;
+
+    //The pool. Starts empty and grows as needed, up to MAX_PARTICLES.
+    private int count, capacity;
+    private double[] x, y, z, prevX, prevY, prevZ;
+    private float[] velX, velY, velZ, gravity, drag, startSize, endSize, u0, v0, u1, v1;
+    private int[] age, lifetime, color, light, texture;
+
+    public AspectParticles(List<AspectTexture> textures) {
+        this.textures = textures;
+        layers = new RenderLayer[textures.size()];
+        countPerTexture = new int[textures.size()];
+    }
+
+    int findTexture(String name) {
+        for (int i = 0; i < textures.size(); i++)
+            if (textures.get(i).getName().equals(name))
+                return i;
+        return -1;
+    }
+
+    AspectTexture getTexture(int index) {
+        return textures.get(index);
+    }
+
+    private void grow() {
+        capacity = Math.min(MAX_PARTICLES, Math.max(64, capacity * 2));
+        x = grow(x); y = grow(y); z = grow(z);
+        prevX = grow(prevX); prevY = grow(prevY); prevZ = grow(prevZ);
+        velX = grow(velX); velY = grow(velY); velZ = grow(velZ);
+        gravity = grow(gravity); drag = grow(drag);
+        startSize = grow(startSize); endSize = grow(endSize);
+        u0 = grow(u0); v0 = grow(v0); u1 = grow(u1); v1 = grow(v1);
+        age = grow(age); lifetime = grow(lifetime);
+        color = grow(color); light = grow(light); texture = grow(texture);
+    }
+
+    private double[] grow(double[] arr) {
+        return arr == null ? new double[capacity] : Arrays.copyOf(arr, capacity);
+    }
+
+    private float[] grow(float[] arr) {
+        return arr == null ? new float[capacity] : Arrays.copyOf(arr, capacity);
+    }
+
+    private int[] grow(int[] arr) {
+        return arr == null ? new int[capacity] : Arrays.copyOf(arr, capacity);
+    }
+
+    /**
+     * Spawn particles from the emitter. Silently stops once the pool is full.
+     */
+    void emit(ParticleEmitter emitter, int n) {
+        if (emitter.texture == -1 || world == null) return;
+        int spawnLight = 0;
+        if (n > 0) {
+            BlockPos lightPos = new BlockPos(emitter.pos.x, emitter.pos.y, emitter.pos.z);
+            spawnLight = LightmapTextureManager.pack(
+                    world.getLightLevel(LightType.BLOCK, lightPos),
+                    world.getLightLevel(LightType.SKY, lightPos)
+            );
+        }
+        for (int k = 0; k < n && count < MAX_PARTICLES; k++) {
+            if (count == capacity) grow();
+            int i = count++;
+            x[i] = prevX[i] = emitter.pos.x;
+            y[i] = prevY[i] = emitter.pos.y;
+            z[i] = prevZ[i] = emitter.pos.z;
+            velX[i] = (float) (emitter.velocity.x + (random.nextDouble() * 2 - 1) * emitter.spread);
+            velY[i] = (float) (emitter.velocity.y + (random.nextDouble() * 2 - 1) * emitter.spread);
+            velZ[i] = (float) (emitter.velocity.z + (random.nextDouble() * 2 - 1) * emitter.spread);
+            gravity[i] = emitter.gravity;
+            drag[i] = emitter.drag;
+            age[i] = 0;
+            lifetime[i] = emitter.minLifetime + (emitter.maxLifetime > emitter.minLifetime ? random.nextInt(emitter.maxLifetime - emitter.minLifetime + 1) : 0);
+            startSize[i] = emitter.startSize;
+            endSize[i] = emitter.endSize;
+            u0[i] = emitter.u0; v0[i] = emitter.v0;
+            u1[i] = emitter.u1; v1[i] = emitter.v1;
+            color[i] = emitter.color;
+            light[i] = spawnLight;
+            texture[i] = emitter.texture;
+            countPerTexture[emitter.texture]++;
+        }
+    }
+
+    /**
+     * Simulate a game tick: age and move every particle, then let the emitters spawn.
+     * Called every game tick on the client thread, regardless of script throttling.
+     */
+    public void tick(ClientWorld world) {
+        this.world = world;
+        int i = 0;
+        while (i < count) {
+            if (++age[i] >= lifetime[i]) {
+                kill(i);
+                continue; //The last particle was moved into i, look at it next
+            }
+            prevX[i] = x[i]; prevY[i] = y[i]; prevZ[i] = z[i];
+            velY[i] -= gravity[i];
+            float keep = 1 - drag[i];
+            velX[i] *= keep; velY[i] *= keep; velZ[i] *= keep;
+            x[i] += velX[i]; y[i] += velY[i]; z[i] += velZ[i];
+            i++;
+        }
+
+        if (emitters.isEmpty()) return;
+        emitters.removeIf(emitter -> emitter.removed);
+        for (ParticleEmitter emitter : emitters) {
+            if (!emitter.enabled) continue;
+            emitter.accumulated += emitter.rate;
+            int n = (int) emitter.accumulated;
+            emitter.accumulated -= n;
+            emit(emitter, n);
+        }
+    }
+
+    /**
+     * Swap the last particle into slot i
+     */
+    private void kill(int i) {
+        countPerTexture[texture[i]]--;
+        int last = --count;
+        if (i == last) return;
+        x[i] = x[last]; y[i] = y[last]; z[i] = z[last];
+        prevX[i] = prevX[last]; prevY[i] = prevY[last]; prevZ[i] = prevZ[last];
+        velX[i] = velX[last]; velY[i] = velY[last]; velZ[i] = velZ[last];
+        gravity[i] = gravity[last]; drag[i] = drag[last];
+        age[i] = age[last]; lifetime[i] = lifetime[last];
+        startSize[i] = startSize[last]; endSize[i] = endSize[last];
+        u0[i] = u0[last]; v0[i] = v0[last]; u1[i] = u1[last]; v1[i] = v1[last];
+        color[i] = color[last]; light[i] = light[last]; texture[i] = texture[last];
+    }
+
+    //Render temps, only used on the render thread
+    private static final Vector3f left = new Vector3f(), up = new Vector3f();
+    private static final Vector3d corner = new Vector3d();
+
+    /**
+     * Draw every particle, one texture at a time. The matrices should be
+     * the world render's, translated so the camera is at the origin.
+     */
+    public void render(VertexConsumerProvider vcp, AspectMatrixStack matrixStack, float tickDelta) {
+        if (count == 0) return;
+        Quaternionf cameraRot = MinecraftClient.getInstance().gameRenderer.getCamera().getRotation();
+        cameraRot.transform(left.set(-1, 0, 0));
+        cameraRot.transform(up.set(0, 1, 0));
+        Matrix4d matrix = matrixStack.peekPosition();
+
+        for (int t = 0; t < countPerTexture.length; t++) {
+            if (countPerTexture[t] == 0) continue;
+            if (layers[t] == null)
+                layers[t] = RenderLayer.getEntityTranslucent(textures.get(t).getIdentifier());
+            VertexConsumer buffer = vcp.getBuffer(layers[t]);
+            for (int i = 0; i < count; i++) {
+                if (texture[i] != t) continue;
+                double px = MathHelper.lerp(tickDelta, prevX[i], x[i]);
+                double py = MathHelper.lerp(tickDelta, prevY[i], y[i]);
+                double pz = MathHelper.lerp(tickDelta, prevZ[i], z[i]);
+                float size = MathHelper.lerp((age[i] + tickDelta) / lifetime[i], startSize[i], endSize[i]);
+                float lx = left.x * size, ly = left.y * size, lz = left.z * size;
+                float ux = up.x * size, uy = up.y * size, uz = up.z * size;
+                int c = color[i];
+                float a = (c >>> 24) / 255f, r = (c >> 16 & 0xFF) / 255f, g = (c >> 8 & 0xFF) / 255f, b = (c & 0xFF) / 255f;
+                vertex(buffer, matrix, px - lx - ux, py - ly - uy, pz - lz - uz, r, g, b, a, u1[i], v1[i], light[i]);
+                vertex(buffer, matrix, px - lx + ux, py - ly + uy, pz - lz + uz, r, g, b, a, u1[i], v0[i], light[i]);
+                vertex(buffer, matrix, px + lx + ux, py + ly + uy, pz + lz + uz, r, g, b, a, u0[i], v0[i], light[i]);
+                vertex(buffer, matrix, px + lx - ux, py + ly - uy, pz + lz - uz, r, g, b, a, u0[i], v1[i], light[i]);
+            }
+        }
+    }
+
+    private static void vertex(VertexConsumer buffer, Matrix4d matrix, double x, double y, double z, float r, float g, float b, float a, float u, float v, int light) {
+        matrix.transformPosition(x, y, z, corner);
+        buffer.vertex(
+                (float) corner.x, (float) corner.y, (float) corner.z, //Position
+                r, g, b, a, //Color
+                u, v, //Texture
+                OverlayTexture.DEFAULT_UV, //"Overlay"
+                light, //Light
+                0, 1, 0 //Normal
+        );
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public ParticleEmitter emitter() {
+        ParticleEmitter emitter = new ParticleEmitter(this);
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    @PetPetWhitelist
+    public double count() {
+        return count;
+    }
+
+    @PetPetWhitelist
+    public void clear() {
+        count = 0;
+        Arrays.fill(countPerTexture, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "Particles(" + count + ")";
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.moonlightmaya.particle;
+
+import io.github.moonlightmaya.texture.AspectTexture;
+import org.joml.Vector3d;
+import org.joml.Vector4d;
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.PetPetException;
+
+/**
+ * Spawns particles into its Aspect's pool. Scripts only configure it,
+ * spawning and simulating the particles all happens natively each tick.
+ * Positions and velocities are in world space, in blocks and blocks per tick.
+ */
+@PetPetWhitelist
+public class ParticleEmitter {
+
+    private final AspectParticles owner;
+
+    final Vector3d pos = new Vector3d();
+    final Vector3d velocity = new Vector3d();
+    double spread;
+    double rate; //Particles per tick, fractions carry over
+    double accumulated;
+    int minLifetime = 20, maxLifetime = 20;
+    float startSize = 0.1f, endSize = 0.1f;
+    float gravity, drag;
+    int texture = -1;
+    float u0 = 0, v0 = 0, u1 = 1, v1 = 1;
+    int color = 0xFFFFFFFF; //ARGB
+    boolean enabled = true;
+    boolean removed;
+
+    ParticleEmitter(AspectParticles owner) {
+        this.owner = owner;
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public ParticleEmitter pos_3(double x, double y, double z) {
+        pos.set(x, y, z);
+        return this;
+    }
+    @PetPetWhitelist
+    public ParticleEmitter pos_1(Vector3d v) {
+        pos.set(v);
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter velocity_3(double x, double y, double z) {
+        velocity.set(x, y, z);
+        return this;
+    }
+    @PetPetWhitelist
+    public ParticleEmitter velocity_1(Vector3d v) {
+        velocity.set(v);
+        return this;
+    }
+
+    /**
+     * Random velocity, up to this much on each axis, added to each particle
+     */
+    @PetPetWhitelist
+    public ParticleEmitter spread(double spread) {
+        this.spread = spread;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter rate(double perTick) {
+        this.rate = perTick;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter lifetime_1(int ticks) {
+        return lifetime_2(ticks, ticks);
+    }
+    @PetPetWhitelist
+    public ParticleEmitter lifetime_2(int min, int max) {
+        if (min <= 0 || max < min)
+            throw new PetPetException("Invalid particle lifetime " + min + " to " + max);
+        minLifetime = min;
+        maxLifetime = max;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter size_1(double size) {
+        return size_2(size, size);
+    }
+    @PetPetWhitelist
+    public ParticleEmitter size_2(double start, double end) {
+        startSize = (float) start;
+        endSize = (float) end;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter gravity(double gravity) {
+        this.gravity = (float) gravity;
+        return this;
+    }
+
+    /**
+     * Fraction of velocity lost each tick
+     */
+    @PetPetWhitelist
+    public ParticleEmitter drag(double drag) {
+        this.drag = (float) drag;
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter texture(String name) {
+        texture = owner.findTexture(name);
+        if (texture == -1)
+            throw new PetPetException("No texture named " + name);
+        return this;
+    }
+
+    /**
+     * Region of the texture to use, in pixels
+     */
+    @PetPetWhitelist
+    public ParticleEmitter uv(double x1, double y1, double x2, double y2) {
+        if (texture == -1)
+            throw new PetPetException("Set the emitter's texture before its uv");
+        AspectTexture tex = owner.getTexture(texture);
+        u0 = (float) (x1 / tex.getWidth());
+        v0 = (float) (y1 / tex.getHeight());
+        u1 = (float) (x2 / tex.getWidth());
+        v1 = (float) (y2 / tex.getHeight());
+        return this;
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter color_4(double r, double g, double b, double a) {
+        color = ((int) (a * 255) & 0xFF) << 24 | ((int) (r * 255) & 0xFF) << 16 | ((int) (g * 255) & 0xFF) << 8 | ((int) (b * 255) & 0xFF);
+        return this;
+    }
+    @PetPetWhitelist
+    public ParticleEmitter color_1(Vector4d rgba) {
+        return color_4(rgba.x, rgba.y, rgba.z, rgba.w);
+    }
+
+    @PetPetWhitelist
+    public ParticleEmitter enabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Spawn this many particles right away
+     */
+    @PetPetWhitelist
+    public ParticleEmitter burst(int count) {
+        owner.emit(this, count);
+        return this;
+    }
+
+    @PetPetWhitelist
+    public void remove() {
+        removed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "ParticleEmitter";
+    }
+}
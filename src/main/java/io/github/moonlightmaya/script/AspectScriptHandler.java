@@ -1,47 +1,20 @@
 package io.github.moonlightmaya.script;
 
 import io.github.moonlightmaya.Aspect;
-import io.github.moonlightmaya.model.AspectModelPart;
+import io.github.moonlightmaya.model.ModelPose;
 import io.github.moonlightmaya.model.WorldRootModelPart;
-import io.github.moonlightmaya.script.apis.ItemStackAPI;
-import io.github.moonlightmaya.script.apis.entity.EntityAPI;
-import io.github.moonlightmaya.script.apis.entity.LivingEntityAPI;
-import io.github.moonlightmaya.script.apis.entity.PlayerAPI;
-import io.github.moonlightmaya.script.apis.world.BiomeAPI;
-import io.github.moonlightmaya.script.apis.world.BlockStateAPI;
-import io.github.moonlightmaya.script.apis.world.DimensionAPI;
-import io.github.moonlightmaya.script.apis.world.WorldAPI;
 import io.github.moonlightmaya.script.apis.math.Matrices;
 import io.github.moonlightmaya.script.apis.math.Vectors;
 import io.github.moonlightmaya.script.events.AspectEvent;
 import io.github.moonlightmaya.script.events.EventHandler;
 import io.github.moonlightmaya.util.DisplayUtils;
-import io.github.moonlightmaya.vanilla.VanillaPart;
-import io.github.moonlightmaya.vanilla.VanillaRenderer;
-import net.minecraft.block.BlockState;
-import net.minecraft.client.world.ClientWorld;
-import net.minecraft.entity.Entity;
-import net.minecraft.entity.LivingEntity;
-import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.item.ItemStack;
-import net.minecraft.world.biome.Biome;
-import net.minecraft.world.dimension.DimensionType;
-import org.joml.*;
 import petpet.external.PetPetInstance;
-import petpet.external.PetPetReflector;
-import petpet.lang.compile.Compiler;
-import petpet.lang.lex.Lexer;
-import petpet.lang.parse.Parser;
 import petpet.lang.run.JavaFunction;
 import petpet.lang.run.PetPetClosure;
 import petpet.lang.run.PetPetException;
-import petpet.types.PetPetList;
 import petpet.types.PetPetTable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * The interface between an Aspect and its scripts.
@@ -63,6 +36,25 @@ public class AspectScriptHandler {
 
     private boolean shouldPrintToChat = true; //Whether this Aspect should print its output to chat
 
+    /**
+     * Time budgets for each kind of event, decided by how much the user is trusted.
+     * An event which goes over its budget MAX_STRIKES calls in a row suspends the
+     * Aspect. Requiring several strikes keeps a single GC pause or JIT hiccup from
+     * suspending an otherwise well-behaved Aspect. Events that only run once, like
+     * init, get one strike, since they could never go over several times in a row.
+     */
+    private ScriptLimits limits;
+    private static final int MAX_STRIKES = 3;
+    private final Map<String, ScriptUsage> usage = new LinkedHashMap<>();
+    private final ScriptUsage initUsage = new ScriptUsage();
+
+    /**
+     * Jobs and timers submitted by scripts, run at the end of each script tick.
+     */
+    private final ScriptScheduler scheduler = new ScriptScheduler();
+    public static final String SCHEDULER = "scheduler";
+    private final ScriptUsage schedulerUsage = new ScriptUsage();
+
     /**
      * When first creating the script handler, we will compile
      * all the scripts, and potentially report errors.
@@ -70,6 +62,7 @@ public class AspectScriptHandler {
      */
     public AspectScriptHandler(Aspect aspect) {
         this.aspect = aspect;
+        this.limits = ScriptLimits.forUser(aspect.userUUID);
 
         //Create new instance
         instance = new PetPetInstance();
@@ -94,12 +87,15 @@ public class AspectScriptHandler {
         //If there are no compiled scripts, just do nothing
         if (compiledScripts.size() > 0) {
             String main = "main"; //Maybe changeable later
+            ScriptProfiler.enter(aspect.userUUID, ScriptLimits.INIT);
+            long start = System.nanoTime();
             try {
                 requireFunction.call(main);
             } catch (Throwable t) {
                 error = t;
                 DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
             }
+            checkUsage(ScriptLimits.INIT, initUsage, System.nanoTime() - start);
         }
     }
 
@@ -116,43 +112,16 @@ public class AspectScriptHandler {
     public void onEntityFirstLoad() {
         instance.setGlobal("vanilla", aspect.vanillaRenderer);
         modelsTable.put("entity", aspect.entityRoot);
-        callEvent(EventHandler.USER_INIT);
+        callEvent(eventHandler.userInit);
     }
 
     /**
-     * Register the different types which are allowed
+     * Register the different types which are allowed.
+     * The classes themselves are shared between every Aspect,
+     * see ScriptClasses.
      */
     private void registerTypes() {
-        //Math
-        instance.registerClass(Vector2d.class, Vectors.VEC_2);
-        instance.registerClass(Vector3d.class, Vectors.VEC_3);
-        instance.registerClass(Vector4d.class, Vectors.VEC_4);
-        instance.registerClass(Matrix2d.class, Matrices.MAT_2);
-        instance.registerClass(Matrix3d.class, Matrices.MAT_3);
-        instance.registerClass(Matrix4d.class, Matrices.MAT_4);
-
-        //Events
-        instance.registerClass(AspectEvent.class, PetPetReflector.reflect(AspectEvent.class, "Event"));
-
-        //Model Parts
-        instance.registerClass(WorldRootModelPart.class, PetPetReflector.reflect(WorldRootModelPart.class, "WorldRootModelPart"));
-        instance.registerClass(AspectModelPart.class, PetPetReflector.reflect(AspectModelPart.class, "ModelPart"));
-
-        //Vanilla renderer
-        instance.registerClass(VanillaRenderer.class, PetPetReflector.reflect(VanillaRenderer.class, "VanillaRenderer"));
-        instance.registerClass(VanillaPart.class, PetPetReflector.reflect(VanillaPart.class, "VanillaPart"));
-
-        //World
-        instance.registerClass(ClientWorld.class, WorldAPI.WORLD_CLASS);
-        instance.registerClass(BlockState.class, BlockStateAPI.BLOCK_STATE_CLASS);
-        instance.registerClass(ItemStack.class, ItemStackAPI.ITEMSTACK_CLASS);
-        instance.registerClass(DimensionType.class, DimensionAPI.DIMENSION_CLASS);
-        instance.registerClass(Biome.class, BiomeAPI.BIOME_CLASS);
-
-        //Entity
-        instance.registerClass(Entity.class, EntityAPI.ENTITY_CLASS);
-        instance.registerClass(LivingEntity.class, LivingEntityAPI.LIVING_ENTITY_CLASS);
-        instance.registerClass(PlayerEntity.class, PlayerAPI.PLAYER_CLASS);
+        ScriptClasses.registerAll(instance);
     }
 
     /**
@@ -178,6 +147,8 @@ public class AspectScriptHandler {
 
         //Models
         setGlobal("models", modelsTable);
+        setGlobal("pose", ModelPose.CREATE);
+        setGlobal("parts", aspect.partIndex); //Entity parts are added when the user first loads
 
         //World roots in models
         PetPetTable<String, WorldRootModelPart> worldRoots = new PetPetTable<>(aspect.worldRoots.size());
@@ -185,16 +156,29 @@ public class AspectScriptHandler {
             worldRoots.put(worldRootModelPart.name, worldRootModelPart);
         modelsTable.put("world", worldRoots);
 
+        //Animations, played natively by the Aspect's AnimationEngine
+        setGlobal("animations", aspect.animations.createTable());
+
+        //Particles, simulated natively by the Aspect
+        setGlobal("particles", aspect.particles);
+
+        //Scheduler, for timers and jobs spread across ticks
+        setGlobal("scheduler", scheduler);
+
         //Events
         //Code for events is all inside EventHandler, which
         //deals with creating the events and also adding it
         //as a global variable
         eventHandler = new EventHandler(instance);
+        usage.put(ScriptLimits.INIT, initUsage);
+        for (AspectEvent event : eventHandler.getAll())
+            usage.put(event.name, event.usage);
+        usage.put(SCHEDULER, schedulerUsage);
 
         //Other APIs not shown here:
 
-        //world api: set during aspect.tick()
-        //user api: set during aspect.tick()
+        //world api: set during aspect.prepareTick()
+        //user api: set during aspect.prepareTick()
         //vanilla api: set when the user's entity first loads in
     }
 
@@ -202,22 +186,16 @@ public class AspectScriptHandler {
      * Attempts to compile every script in the Aspect.
      * If any fails, it will report the message in chat, and then
      * throw a RuntimeException, aborting the rest of the Aspect load.
+     * Sources compiled before (by any Aspect) come from the ScriptCompileCache,
+     * so they aren't compiled again.
      */
     private void compileScripts() {
         for (Map.Entry<String, String> entry : aspect.scripts.entrySet()) {
             String name = entry.getKey();
-            String source = entry.getValue();
             try {
-                PetPetClosure compiled = instance.compile(name, source);
-                compiledScripts.put(name, compiled);
-            } catch (Lexer.LexingException e) {
-                DisplayUtils.displayError("Lexing error in script " + name + ": " + e.getMessage(), true);
-                throw new RuntimeException("Failed to load script " + name, e);
-            } catch (Parser.ParserException e) {
-                DisplayUtils.displayError("Parsing error in script " + name + ": " + e.getMessage(), true);
-                throw new RuntimeException("Failed to load script " + name, e);
-            } catch (Compiler.CompilationException e) {
-                DisplayUtils.displayError("Compilation error in script " + name + ": " + e.getMessage(), true);
+                compiledScripts.put(name, ScriptCompileCache.compile(instance, name, entry.getValue()));
+            } catch (ScriptCompileCache.CompileException e) {
+                DisplayUtils.displayError(e.failure.kind() + " error in script " + name + ": " + e.failure.message(), true);
                 throw new RuntimeException("Failed to load script " + name, e);
             }
         }
@@ -281,14 +259,86 @@ public class AspectScriptHandler {
         return instance.interpreter.getString(o);
     }
 
+    public EventHandler getEvents() {
+        return eventHandler;
+    }
+
+    /**
+     * Calls the event, if the Aspect isn't errored.
+     * These fixed-arity versions are for events whose handles
+     * were resolved ahead of time, and do nothing at all if
+     * no functions are registered to the event.
+     */
+    public void callEvent(AspectEvent event) {
+        if (isErrored() || !event.hasListeners()) return;
+        ScriptProfiler.enter(aspect.userUUID, event.name);
+        long start = System.nanoTime();
+        try {
+            event.execute();
+        } catch (Throwable t) {
+            error = t;
+            DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
+        }
+        checkUsage(event.name, event.usage, System.nanoTime() - start);
+    }
+
+    public void callEvent(AspectEvent event, Object arg) {
+        if (isErrored() || !event.hasListeners()) return;
+        ScriptProfiler.enter(aspect.userUUID, event.name);
+        long start = System.nanoTime();
+        try {
+            event.execute(arg);
+        } catch (Throwable t) {
+            error = t;
+            DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
+        }
+        checkUsage(event.name, event.usage, System.nanoTime() - start);
+    }
+
+    /**
+     * Number version, so the arg only gets boxed if something is listening
+     */
+    public void callEvent(AspectEvent event, double arg) {
+        if (isErrored() || !event.hasListeners()) return;
+        callEvent(event, (Object) arg);
+    }
+
+    /**
+     * Calls an event by name. Meant for custom events, which don't
+     * have handles; the built-in events should use the versions above.
+     * Does nothing if there's no event with that name.
+     */
     public void callEvent(String eventName, Object... args) {
         if (isErrored()) return;
+        AspectEvent event = eventHandler.get(eventName);
+        if (event == null || !event.hasListeners()) return;
+        ScriptProfiler.enter(aspect.userUUID, eventName);
+        long start = System.nanoTime();
         try {
-            eventHandler.callEvent(eventName, args);
+            event.execute(args);
         } catch (Throwable t) {
             error = t;
             DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
         }
+        checkUsage(eventName, event.usage, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs the scheduler's timers and jobs, if the Aspect isn't errored.
+     * Jobs get half the tick budget as their time slice, so the time
+     * they use doesn't count as strikes against the Aspect.
+     */
+    public void tickScheduler(long ticksElapsed) {
+        if (isErrored() || scheduler.isEmpty()) return;
+        ScriptProfiler.enter(aspect.userUUID, SCHEDULER);
+        long start = System.nanoTime();
+        try {
+            scheduler.tick(ticksElapsed, limits.tickNanos() / 2);
+        } catch (Throwable t) {
+            error = t;
+            DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
+        }
+        checkUsage(SCHEDULER, schedulerUsage, System.nanoTime() - start);
     }
 
     /**
@@ -297,15 +347,57 @@ public class AspectScriptHandler {
      */
     public Object callEventPiped(String eventName, Object arg) {
         if (isErrored()) return arg;
+        AspectEvent event = eventHandler.get(eventName);
+        if (event == null || !event.hasListeners()) return arg;
+        ScriptProfiler.enter(aspect.userUUID, eventName);
+        long start = System.nanoTime();
         try {
-            return eventHandler.callEventPiped(eventName, arg);
+            return event.executePiped(arg);
         } catch (Throwable t) {
             error = t;
             DisplayUtils.displayError(t.getMessage(), shouldPrintToChat);
+        } finally {
+            checkUsage(eventName, event.usage, System.nanoTime() - start);
         }
         return arg;
     }
 
+    /**
+     * Records the time taken by a call (and ends its profiler entry), and suspends the Aspect
+     * if it's been going over its budget for that event.
+     */
+    private void checkUsage(String eventName, ScriptUsage eventUsage, long nanos) {
+        ScriptProfiler.exit(nanos);
+        eventUsage.record(nanos);
+        long limit = limits.getLimit(eventName);
+        if (nanos <= limit) {
+            eventUsage.strikes = 0;
+        } else if (ScriptLimits.isOneShot(eventName) && !isErrored()) {
+            error = new PetPetException(String.format("Aspect suspended: \"%s\" took %.2f ms, over its limit of %.2f ms",
+                    eventName, nanos / 1e6, limit / 1e6));
+            DisplayUtils.displayError(error.getMessage(), shouldPrintToChat);
+        } else if (++eventUsage.strikes >= MAX_STRIKES && !isErrored()) {
+            error = new PetPetException(String.format("Aspect suspended: \"%s\" took %.2f ms, over its limit of %.2f ms, %d times in a row",
+                    eventName, nanos / 1e6, limit / 1e6, eventUsage.strikes));
+            DisplayUtils.displayError(error.getMessage(), shouldPrintToChat);
+        }
+    }
+
+    public void setLimits(ScriptLimits limits) {
+        this.limits = limits;
+    }
+
+    public ScriptLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Time spent by this Aspect's scripts, by event name.
+     */
+    public Map<String, ScriptUsage> getUsage() {
+        return Collections.unmodifiableMap(usage);
+    }
+
     public boolean isErrored() {
         return error != null;
     }
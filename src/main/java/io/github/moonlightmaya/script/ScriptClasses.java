@@ -0,0 +1,130 @@
+package io.github.moonlightmaya.script;
+
+import io.github.moonlightmaya.animation.AspectAnimation;
+import io.github.moonlightmaya.animation.PartDriver;
+import io.github.moonlightmaya.animation.PhysicsChain;
+import io.github.moonlightmaya.model.AspectModelPart;
+import io.github.moonlightmaya.model.ModelPartIndex;
+import io.github.moonlightmaya.model.ModelPose;
+import io.github.moonlightmaya.model.WorldRootModelPart;
+import io.github.moonlightmaya.particle.AspectParticles;
+import io.github.moonlightmaya.particle.ParticleEmitter;
+import io.github.moonlightmaya.script.apis.ItemStackAPI;
+import io.github.moonlightmaya.script.apis.entity.EntityAPI;
+import io.github.moonlightmaya.script.apis.entity.EntitySnapshot;
+import io.github.moonlightmaya.script.apis.entity.LivingEntityAPI;
+import io.github.moonlightmaya.script.apis.entity.PlayerAPI;
+import io.github.moonlightmaya.script.apis.math.Matrices;
+import io.github.moonlightmaya.script.apis.math.Vectors;
+import io.github.moonlightmaya.script.apis.nbt.NbtCompoundView;
+import io.github.moonlightmaya.script.apis.nbt.NbtListView;
+import io.github.moonlightmaya.script.apis.world.BiomeAPI;
+import io.github.moonlightmaya.script.apis.world.BlockStateAPI;
+import io.github.moonlightmaya.script.apis.world.DimensionAPI;
+import io.github.moonlightmaya.script.apis.world.WorldAPI;
+import io.github.moonlightmaya.script.events.AspectEvent;
+import io.github.moonlightmaya.vanilla.VanillaPart;
+import io.github.moonlightmaya.vanilla.VanillaRenderer;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.dimension.DimensionType;
+import org.joml.*;
+import petpet.external.PetPetInstance;
+import petpet.external.PetPetReflector;
+import petpet.lang.run.PetPetClass;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The PetPet classes for every Java type that scripts are allowed to see.
+ * Reflecting a class is the slow part of creating these, and the result
+ * is the same for every Aspect, so the map is built once, the first time
+ * a script handler needs it, and every PetPet instance after that just
+ * attaches the already built classes.
+ */
+public class ScriptClasses {
+
+    /**
+     * Holder idiom, so the reflection happens lazily and exactly once,
+     * even if several Aspects finish loading on different threads.
+     */
+    private static class Holder {
+        private static final Map<Class<?>, PetPetClass> CLASSES = build();
+    }
+
+    private static Map<Class<?>, PetPetClass> build() {
+        Map<Class<?>, PetPetClass> classes = new LinkedHashMap<>();
+
+        //Math
+        classes.put(Vector2d.class, Vectors.VEC_2);
+        classes.put(Vector3d.class, Vectors.VEC_3);
+        classes.put(Vector4d.class, Vectors.VEC_4);
+        classes.put(Matrix2d.class, Matrices.MAT_2);
+        classes.put(Matrix3d.class, Matrices.MAT_3);
+        classes.put(Matrix4d.class, Matrices.MAT_4);
+
+        //Events
+        classes.put(AspectEvent.class, PetPetReflector.reflect(AspectEvent.class, "Event"));
+
+        //Scheduler
+        classes.put(ScriptScheduler.class, PetPetReflector.reflect(ScriptScheduler.class, "Scheduler"));
+
+        //Model Parts
+        classes.put(WorldRootModelPart.class, PetPetReflector.reflect(WorldRootModelPart.class, "WorldRootModelPart"));
+        classes.put(AspectModelPart.class, PetPetReflector.reflect(AspectModelPart.class, "ModelPart"));
+        classes.put(ModelPose.class, PetPetReflector.reflect(ModelPose.class, "Pose"));
+        classes.put(ModelPartIndex.class, PetPetReflector.reflect(ModelPartIndex.class, "PartIndex"));
+
+        //Animations
+        classes.put(AspectAnimation.class, PetPetReflector.reflect(AspectAnimation.class, "Animation"));
+        classes.put(PartDriver.class, PetPetReflector.reflect(PartDriver.class, "Driver"));
+        classes.put(PhysicsChain.class, PetPetReflector.reflect(PhysicsChain.class, "PhysicsChain"));
+
+        //Particles
+        classes.put(AspectParticles.class, PetPetReflector.reflect(AspectParticles.class, "Particles"));
+        classes.put(ParticleEmitter.class, PetPetReflector.reflect(ParticleEmitter.class, "ParticleEmitter"));
+
+        //Vanilla renderer
+        classes.put(VanillaRenderer.class, PetPetReflector.reflect(VanillaRenderer.class, "VanillaRenderer"));
+        classes.put(VanillaPart.class, PetPetReflector.reflect(VanillaPart.class, "VanillaPart"));
+
+        //World
+        classes.put(ClientWorld.class, WorldAPI.WORLD_CLASS);
+        classes.put(BlockState.class, BlockStateAPI.BLOCK_STATE_CLASS);
+        classes.put(ItemStack.class, ItemStackAPI.ITEMSTACK_CLASS);
+        classes.put(DimensionType.class, DimensionAPI.DIMENSION_CLASS);
+        classes.put(Biome.class, BiomeAPI.BIOME_CLASS);
+
+        //NBT
+        classes.put(NbtCompoundView.class, PetPetReflector.reflect(NbtCompoundView.class, "NbtCompound"));
+        classes.put(NbtListView.class, PetPetReflector.reflect(NbtListView.class, "NbtList"));
+
+        //Entity
+        classes.put(Entity.class, EntityAPI.ENTITY_CLASS);
+        classes.put(LivingEntity.class, LivingEntityAPI.LIVING_ENTITY_CLASS);
+        classes.put(PlayerEntity.class, PlayerAPI.PLAYER_CLASS);
+        classes.put(EntitySnapshot.class, PetPetReflector.reflect(EntitySnapshot.class, "EntitySnapshot"));
+
+        return Collections.unmodifiableMap(classes);
+    }
+
+    public static Map<Class<?>, PetPetClass> getAll() {
+        return Holder.CLASSES;
+    }
+
+    /**
+     * Registers every shared class into the given instance
+     */
+    public static void registerAll(PetPetInstance instance) {
+        for (Map.Entry<Class<?>, PetPetClass> entry : Holder.CLASSES.entrySet())
+            instance.registerClass(entry.getKey(), entry.getValue());
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.github.moonlightmaya.script;
+
+import petpet.external.PetPetInstance;
+import petpet.lang.compile.Compiler;
+import petpet.lang.lex.Lexer;
+import petpet.lang.parse.Parser;
+import petpet.lang.run.PetPetClosure;
+import petpet.lang.run.PetPetFunction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers compiled scripts, so the same source is only lexed, parsed and
+ * compiled once, no matter how many Aspects load it. Re-equipping an Aspect,
+ * or putall onto every entity in view, then only costs a lookup per script.
+ *
+ * What's cached is the compiled function, the prototype with the bytecode and
+ * constants. It doesn't hold any state of its own, so each Aspect gets a fresh
+ * closure over it, bound to its own instance. Failures are cached too, so a
+ * broken script reports its error straight away the next time.
+ *
+ * Entries are keyed by the script's name and source together, since the name
+ * ends up in the compiled function for error messages. Comparing the source on
+ * a hit is still far cheaper than compiling it. The cache only lives as long as
+ * the game does; PetPet has no way to save compiled functions.
+ *
+ * Shared between all Aspects, so everything here is thread safe.
+ */
+public class ScriptCompileCache {
+
+    //Past this many entries, the cache is just cleared
+    private static final int MAX_ENTRIES = 256;
+
+    private record Key(String name, String source) {}
+
+    private static final Map<Key, PetPetFunction> COMPILED = new ConcurrentHashMap<>();
+    private static final Map<Key, Failure> FAILURES = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * The error message a source failed to compile with,
+     * without the name of the script it came from.
+     */
+    public record Failure(String kind, String message) {}
+
+    /**
+     * Thrown by compile() when the source fails to compile,
+     * whether it just failed or failed before.
+     */
+    public static class CompileException extends RuntimeException {
+        public final Failure failure;
+
+        private CompileException(Failure failure, Exception cause) {
+            super(failure.kind() + " error: " + failure.message(), cause);
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Gets a closure of the compiled source, bound to the given instance.
+     * Only compiles the source if it hasn't been compiled before.
+     */
+    public static PetPetClosure compile(PetPetInstance instance, String name, String source) {
+        Key key = new Key(name, source);
+        PetPetFunction function = COMPILED.get(key);
+        if (function != null) {
+            HITS.incrementAndGet();
+            return new PetPetClosure(function, instance.interpreter);
+        }
+        Failure failure = FAILURES.get(key);
+        if (failure != null) {
+            HITS.incrementAndGet();
+            throw new CompileException(failure, null);
+        }
+
+        MISSES.incrementAndGet();
+        try {
+            PetPetClosure compiled = instance.compile(name, source);
+            put(COMPILED, key, compiled.function);
+            return compiled;
+        } catch (Lexer.LexingException e) {
+            throw fail(key, "Lexing", e);
+        } catch (Parser.ParserException e) {
+            throw fail(key, "Parsing", e);
+        } catch (Compiler.CompilationException e) {
+            throw fail(key, "Compilation", e);
+        }
+    }
+
+    private static CompileException fail(Key key, String kind, Exception e) {
+        Failure failure = new Failure(kind, e.getMessage());
+        put(FAILURES, key, failure);
+        return new CompileException(failure, e);
+    }
+
+    private static <T> void put(Map<Key, T> map, Key key, T value) {
+        if (map.size() >= MAX_ENTRIES)
+            map.clear();
+        map.put(key, value);
+    }
+
+    public static void clear() {
+        COMPILED.clear();
+        FAILURES.clear();
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static double getHitRate() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static String describe() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d compiled and %d failing sources cached",
+                getHits(), getMisses(), getHitRate() * 100, COMPILED.size(), FAILURES.size());
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.moonlightmaya.script;
+
+import io.github.moonlightmaya.AspectConfig;
+import io.github.moonlightmaya.script.events.EventHandler;
+
+import java.util.UUID;
+
+/**
+ * Time budgets for an Aspect's scripts, per kind of event.
+ * If an event keeps taking longer than its budget, the Aspect
+ * is suspended, so one runaway script can't keep stalling the
+ * whole client.
+ *
+ * All limits are in nanoseconds.
+ */
+public record ScriptLimits(
+        long initNanos, //Running the main script, and user_init
+        long tickNanos,
+        long renderNanos,
+        long worldRenderNanos,
+        long otherNanos //Every other event, like user_load or world_change
+) {
+
+    private static final long MS = 1_000_000;
+
+    public static final ScriptLimits
+            LOW = new ScriptLimits(100 * MS, 2 * MS, 1 * MS, 1 * MS, 2 * MS),
+            DEFAULT = new ScriptLimits(250 * MS, 5 * MS, 3 * MS, 3 * MS, 5 * MS),
+            HIGH = new ScriptLimits(1000 * MS, 20 * MS, 10 * MS, 10 * MS, 20 * MS),
+            UNLIMITED = new ScriptLimits(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * The name used when reporting usage of the main script, which isn't an event.
+     */
+    public static final String INIT = "init";
+
+    public long getLimit(String eventName) {
+        return switch (eventName) {
+            case INIT, EventHandler.USER_INIT -> initNanos;
+            case EventHandler.TICK, EventHandler.WORLD_TICK -> tickNanos;
+            case EventHandler.RENDER -> renderNanos;
+            case EventHandler.WORLD_RENDER -> worldRenderNanos;
+            default -> otherNanos;
+        };
+    }
+
+    /**
+     * Whether the event only ever runs once per Aspect. Those can't go over
+     * their budget several times in a row, so they're suspended on the first overrun.
+     */
+    public static boolean isOneShot(String eventName) {
+        return eventName.equals(INIT) || eventName.equals(EventHandler.USER_INIT);
+    }
+
+    /**
+     * How much each user is trusted, which decides their limits.
+     * Users without an entry get DEFAULT. Saved in the mod config.
+     */
+    public enum Trust {
+        LOW(ScriptLimits.LOW),
+        DEFAULT(ScriptLimits.DEFAULT),
+        HIGH(ScriptLimits.HIGH),
+        MAX(ScriptLimits.UNLIMITED);
+
+        public final ScriptLimits limits;
+
+        Trust(ScriptLimits limits) {
+            this.limits = limits;
+        }
+    }
+
+    public static void setTrust(UUID user, Trust trust) {
+        if (trust == Trust.DEFAULT)
+            AspectConfig.get().trust.remove(user);
+        else
+            AspectConfig.get().trust.put(user, trust);
+        AspectConfig.save();
+    }
+
+    public static Trust getTrust(UUID user) {
+        return AspectConfig.get().trust.getOrDefault(user, Trust.DEFAULT);
+    }
+
+    public static ScriptLimits forUser(UUID user) {
+        return getTrust(user).limits;
+    }
+
+}
@@ -0,0 +1,259 @@
+package io.github.moonlightmaya.script;
+
+import io.github.moonlightmaya.AspectMod;
+import petpet.lang.run.PetPetCallable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in profiler for scripts, controlled by /aspect profile.
+ *
+ * It does two things while running:
+ * - Times every script entry point (by Aspect and event) and every function
+ *   registered to an event or the scheduler, exactly, with ScriptUsage.
+ * - Samples the threads that are inside a script every millisecond, and looks
+ *   at their stacks to see which Java API method the script was in at the time,
+ *   if any. That's what attributes time to API methods, since the calls from
+ *   PetPet into Java go through the interpreter and can't be wrapped from here.
+ *
+ * The samples can be exported as collapsed stacks, one "user;event;function;api count"
+ * line per stack, which is the input format for flame graph tools.
+ *
+ * When it isn't running, the only cost is a volatile read when entering and
+ * leaving each script entry point, and once per event execution.
+ */
+public class ScriptProfiler {
+
+    private static final long SAMPLE_INTERVAL_MS = 1;
+    private static final String SCRIPT_LEAF = "[script]"; //Samples where no Java API method was running
+
+    private static volatile boolean enabled;
+    private static Thread sampler;
+    private static long startNanos, stopNanos;
+
+    //What each thread is running right now, only present while inside a script
+    private static final Map<Thread, Frame> ACTIVE = new ConcurrentHashMap<>();
+
+    //Keyed by collapsed path, "user;event" for entry points and "user;event;function" for functions
+    private static final Map<String, ScriptUsage> TIMINGS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> SAMPLES = new ConcurrentHashMap<>();
+    private static final Map<PetPetCallable, String> LABELS = new ConcurrentHashMap<>();
+
+    private static class Frame {
+        final String base; //"user;event"
+        final Frame previous; //Frame this one was entered from, if scripts ended up nested
+        volatile String path; //base, or base;function while inside a function
+
+        Frame(String base, Frame previous) {
+            this.base = base;
+            this.previous = previous;
+            this.path = base;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears any previous results and starts profiling.
+     */
+    public static synchronized void start() {
+        if (enabled) return;
+        ACTIVE.clear(); //In case a thread entered just as the last run stopped
+        TIMINGS.clear();
+        SAMPLES.clear();
+        LABELS.clear();
+        startNanos = System.nanoTime();
+        enabled = true;
+        sampler = new Thread(ScriptProfiler::sampleLoop, "Aspect Script Profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops profiling. The results are kept until the next start().
+     */
+    public static synchronized void stop() {
+        if (!enabled) return;
+        enabled = false;
+        ACTIVE.clear(); //Threads still inside a script won't exit() their frames now
+        stopNanos = System.nanoTime();
+        sampler.interrupt();
+        sampler = null;
+    }
+
+    //----------INSTRUMENTATION----------//
+
+    /**
+     * Called by AspectScriptHandler when entering the scripts of an Aspect.
+     * Every enter() is paired with an exit(), through checkUsage().
+     */
+    static void enter(UUID user, String event) {
+        if (!enabled) return;
+        Thread thread = Thread.currentThread();
+        ACTIVE.put(thread, new Frame(user + ";" + sanitize(event), ACTIVE.get(thread)));
+    }
+
+    static void exit(long nanos) {
+        if (!enabled) return; //stop() already dropped every frame
+        Thread thread = Thread.currentThread();
+        Frame frame = ACTIVE.get(thread);
+        if (frame == null) return; //Profiling started partway through this call
+        if (frame.previous == null)
+            ACTIVE.remove(thread);
+        else
+            ACTIVE.put(thread, frame.previous);
+        record(frame.base, nanos);
+    }
+
+    /**
+     * Called around each function run by an event or the scheduler,
+     * only while profiling. Returns the start time to pass to end().
+     */
+    public static long begin(String event, PetPetCallable function) {
+        Frame frame = ACTIVE.get(Thread.currentThread());
+        if (frame == null) //Called outside of AspectScriptHandler, don't know whose it is
+            ACTIVE.put(Thread.currentThread(), frame = new Frame("unknown;" + sanitize(event), null));
+        frame.path = frame.base + ";" + label(function);
+        return System.nanoTime();
+    }
+
+    public static void end(long start) {
+        long nanos = System.nanoTime() - start;
+        Thread thread = Thread.currentThread();
+        Frame frame = ACTIVE.get(thread);
+        if (frame == null) return;
+        String path = frame.path;
+        frame.path = frame.base;
+        if (frame.base.startsWith("unknown;") && frame.previous == null)
+            ACTIVE.remove(thread);
+        if (enabled) //Stopped partway through the function, keep the results as they were
+            record(path, nanos);
+    }
+
+    private static void record(String path, long nanos) {
+        ScriptUsage usage = TIMINGS.computeIfAbsent(path, p -> new ScriptUsage());
+        //A path is only ever run by one thread at a time, since each Aspect ticks on one thread,
+        //but the lock is cheap here and keeps the dump from reading half an update
+        synchronized (usage) {
+            usage.record(nanos);
+        }
+    }
+
+    //Functions don't have names, so they're labelled by what PetPet prints for them, made unique
+    private static String label(PetPetCallable function) {
+        return LABELS.computeIfAbsent(function, f -> sanitize(f + "@" + Integer.toHexString(System.identityHashCode(f))));
+    }
+
+    //Semicolons separate frames in collapsed stacks, and the count goes after the last space
+    private static String sanitize(String s) {
+        return s.replace(';', ',').replace(' ', '_');
+    }
+
+    //----------SAMPLING----------//
+
+    private static void sampleLoop() {
+        while (enabled) {
+            try {
+                Thread.sleep(SAMPLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Map.Entry<Thread, Frame> entry : ACTIVE.entrySet()) {
+                String path = entry.getValue().path;
+                String leaf = apiMethod(entry.getKey().getStackTrace());
+                //The thread may have left the script while we were getting its stack
+                if (leaf == null || ACTIVE.get(entry.getKey()) == null) continue;
+                SAMPLES.computeIfAbsent(path + ";" + leaf, p -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * Finds the Java method PetPet called into, by going down the stack
+     * until the first PetPet frame and taking the one just above it.
+     * Reflection and generated invoker frames are skipped, since they're
+     * only glue between the interpreter and the method.
+     * Returns SCRIPT_LEAF if PetPet itself is at the top, or null if the
+     * thread isn't in PetPet at all anymore.
+     */
+    private static String apiMethod(StackTraceElement[] stack) {
+        StackTraceElement above = null;
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            if (className.startsWith("petpet."))
+                return above == null ? SCRIPT_LEAF : simpleName(above.getClassName()) + "." + above.getMethodName();
+            if (className.startsWith("java.lang.reflect.") || className.startsWith("java.lang.invoke.")
+                    || className.startsWith("jdk.internal.") || isInvoker(className))
+                continue;
+            above = element;
+        }
+        return null;
+    }
+
+    //The generated XInvokers classes, and the anonymous JavaFunctions inside them (XInvokers$1, ...)
+    private static boolean isInvoker(String className) {
+        return className.endsWith("Invokers") || className.contains("Invokers$");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    //----------RESULTS----------//
+
+    /**
+     * The entry points and functions which took the most total time, one per line.
+     */
+    public static List<String> summary(int count) {
+        List<Map.Entry<String, ScriptUsage>> entries = new ArrayList<>(TIMINGS.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, ScriptUsage> e) -> e.getValue().totalNanos).reversed());
+        List<String> lines = new ArrayList<>();
+        long elapsed = (enabled ? System.nanoTime() : stopNanos) - startNanos;
+        lines.add(String.format("%s for %.1f s, %d paths, %d samples", enabled ? "Running" : "Stopped", elapsed / 1e9, TIMINGS.size(), totalSamples()));
+        for (int i = 0; i < Math.min(count, entries.size()); i++) {
+            ScriptUsage usage = entries.get(i).getValue();
+            synchronized (usage) {
+                lines.add(entries.get(i).getKey() + ": " + String.format("%.3f ms total, ", usage.totalNanos / 1e6) + usage);
+            }
+        }
+        return lines;
+    }
+
+    private static long totalSamples() {
+        long total = 0;
+        for (LongAdder adder : SAMPLES.values())
+            total += adder.sum();
+        return total;
+    }
+
+    /**
+     * Writes the samples as collapsed stacks, and the exact timings next to them,
+     * into the profiles folder. Returns the path of the collapsed stacks.
+     */
+    public static Path dump(Path folder) throws IOException {
+        Files.createDirectories(folder);
+        String name = "profile-" + System.currentTimeMillis();
+
+        List<String> stacks = new ArrayList<>(SAMPLES.size());
+        for (Map.Entry<String, LongAdder> entry : SAMPLES.entrySet())
+            stacks.add(entry.getKey() + " " + entry.getValue().sum());
+        stacks.sort(null);
+        Path collapsed = folder.resolve(name + ".collapsed");
+        Files.write(collapsed, stacks);
+
+        Files.write(folder.resolve(name + "-timings.txt"), summary(Integer.MAX_VALUE));
+        AspectMod.LOGGER.info("Wrote script profile to " + collapsed);
+        return collapsed;
+    }
+}
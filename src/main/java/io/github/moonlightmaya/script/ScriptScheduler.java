@@ -0,0 +1,230 @@
+package io.github.moonlightmaya.script;
+
+import petpet.external.PetPetWhitelist;
+import petpet.lang.run.PetPetCallable;
+import petpet.lang.run.PetPetException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Deferred and long-running work for an Aspect's scripts.
+ *
+ * Jobs are step functions, called again each tick until they return true.
+ * A script can split up a big piece of work (scanning a region, building a
+ * table) by keeping its progress in the closure and doing a chunk per step.
+ * Steps only run within a time slice each tick, so many jobs share the
+ * budget instead of one of them blowing through the tick limit.
+ *
+ * Timers call a function after some number of ticks, once or repeatedly.
+ * They're kept in a hashed timing wheel: a ring of buckets indexed by due
+ * tick, with a count of full turns left for timers further out than the ring.
+ * Advancing a tick only looks at one bucket, however many timers are waiting.
+ *
+ * Everything here runs from the Aspect's tick, so the lists themselves are
+ * only touched by one thread at a time. New work and cancellations come in
+ * through queues/flags, since scripts may submit them from other events.
+ */
+@PetPetWhitelist
+public class ScriptScheduler {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    //Cap on the slice for steps, so even an unlimited Aspect leaves time for everyone else
+    private static final long MAX_SLICE_NANOS = 2_000_000;
+
+    private static class Task {
+        final long id;
+        final PetPetCallable func;
+        final int interval; //Ticks between calls. 0 for steps and one-shot timers
+        int delay; //Ticks until the first call, for timers
+        int rounds; //Full turns of the wheel left before it's due
+        volatile boolean cancelled;
+
+        Task(long id, PetPetCallable func, int delay, int interval) {
+            this.id = id;
+            this.func = func;
+            this.delay = delay;
+            this.interval = interval;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final List<Task>[] wheel = new List[WHEEL_SIZE];
+    private long now; //Ticks the wheel has advanced
+
+    private final List<Task> jobs = new ArrayList<>();
+    private int nextJob; //Round robin position, so every job gets its turn
+
+    private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Task> live = new ConcurrentHashMap<>();
+    private long nextId = 1;
+
+    private final List<Task> rescheduled = new ArrayList<>();
+
+    public ScriptScheduler() {
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            wheel[i] = new ArrayList<>();
+    }
+
+    private synchronized long submit(PetPetCallable func, int delay, int interval, int expectedArgs) {
+        if (func.paramCount() != expectedArgs)
+            throw new PetPetException("Scheduler expects a " + expectedArgs + "-arg function, but received a " + func.paramCount() + "-arg function");
+        Task task = new Task(nextId++, func, delay, interval);
+        live.put(task.id, task);
+        incoming.add(task);
+        return task.id;
+    }
+
+    private void insert(Task task, int delay) {
+        long due = now + delay;
+        task.rounds = (delay - 1) >> WHEEL_BITS;
+        wheel[(int) (due & WHEEL_MASK)].add(task);
+    }
+
+    /**
+     * Advance the timers by the given number of ticks, firing the ones that come due,
+     * then step the jobs until the time slice runs out.
+     *
+     * New timers are only added after advancing, so their delay counts from the
+     * current tick: after(1) set during this tick's events fires next tick, not
+     * right away. Timers set from inside a timer callback are added at the same
+     * point, so they follow the same rule.
+     */
+    void tick(long ticks, long sliceNanos) {
+        for (long i = 0; i < ticks; i++)
+            advance();
+        addIncoming();
+        runJobs(Math.min(sliceNanos, MAX_SLICE_NANOS));
+    }
+
+    private void addIncoming() {
+        Task task;
+        while ((task = incoming.poll()) != null) {
+            if (task.cancelled) continue;
+            if (task.delay > 0)
+                insert(task, task.delay);
+            else
+                jobs.add(task);
+        }
+    }
+
+    private void advance() {
+        now++;
+        List<Task> bucket = wheel[(int) (now & WHEEL_MASK)];
+        if (bucket.isEmpty()) return;
+        //Compact the bucket in place, keeping timers which aren't due yet
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Task task = bucket.get(i);
+            if (task.cancelled) continue;
+            if (task.rounds > 0) {
+                task.rounds--;
+                bucket.set(kept++, task);
+                continue;
+            }
+            call(task);
+            if (task.interval > 0 && !task.cancelled)
+                rescheduled.add(task);
+            else
+                live.remove(task.id);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+        //Repeating timers go back in after, since they may land in this same bucket
+        for (Task task : rescheduled)
+            insert(task, task.interval);
+        rescheduled.clear();
+    }
+
+    private void runJobs(long sliceNanos) {
+        if (jobs.isEmpty()) return;
+        long deadline = System.nanoTime() + sliceNanos;
+        //Always step at least one job, so a tiny slice can't stall them forever
+        do {
+            if (nextJob >= jobs.size()) nextJob = 0;
+            Task job = jobs.get(nextJob);
+            if (job.cancelled || Boolean.TRUE.equals(call(job))) {
+                live.remove(job.id);
+                jobs.remove(nextJob);
+            } else {
+                nextJob++;
+            }
+        } while (!jobs.isEmpty() && System.nanoTime() < deadline);
+    }
+
+    //Timed per function while the profiler is running
+    private static Object call(Task task) {
+        if (!ScriptProfiler.isEnabled())
+            return task.func.call();
+        long start = ScriptProfiler.begin(AspectScriptHandler.SCHEDULER, task.func);
+        try {
+            return task.func.call();
+        } finally {
+            ScriptProfiler.end(start);
+        }
+    }
+
+    public boolean isEmpty() {
+        return live.isEmpty();
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    /**
+     * Start a job. The function is called once per tick, or more if there's
+     * time left in the slice, until it returns true. Returns an id for cancel().
+     */
+    @PetPetWhitelist
+    public double run(PetPetCallable step) {
+        return submit(step, 0, 0, 0);
+    }
+
+    /**
+     * Call the function once, after the given number of ticks
+     */
+    @PetPetWhitelist
+    public double after(int ticks, PetPetCallable func) {
+        if (ticks <= 0)
+            throw new PetPetException("Timer delay must be at least 1 tick");
+        return submit(func, ticks, 0, 0);
+    }
+
+    /**
+     * Call the function every so many ticks, starting that many ticks from now
+     */
+    @PetPetWhitelist
+    public double every(int ticks, PetPetCallable func) {
+        if (ticks <= 0)
+            throw new PetPetException("Timer interval must be at least 1 tick");
+        return submit(func, ticks, ticks, 0);
+    }
+
+    /**
+     * Stop a job or timer. Returns false if it already finished.
+     */
+    @PetPetWhitelist
+    public boolean cancel(double id) {
+        Task task = live.remove((long) id);
+        if (task == null) return false;
+        task.cancelled = true;
+        return true;
+    }
+
+    /**
+     * How many jobs and timers haven't finished
+     */
+    @PetPetWhitelist
+    public double pending() {
+        return live.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Scheduler(" + live.size() + " pending)";
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.moonlightmaya.script;
+
+/**
+ * Running totals of how much time an Aspect's scripts
+ * have spent in one kind of event.
+ */
+public class ScriptUsage {
+
+    public long calls;
+    public long totalNanos;
+    public long lastNanos;
+    public long maxNanos;
+
+    //How many calls in a row went over the limit
+    int strikes;
+
+    void record(long nanos) {
+        calls++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public double averageNanos() {
+        return calls == 0 ? 0 : (double) totalNanos / calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls, avg %.3f ms, last %.3f ms, max %.3f ms",
+                calls, averageNanos() / 1e6, lastNanos / 1e6, maxNanos / 1e6);
+    }
+}
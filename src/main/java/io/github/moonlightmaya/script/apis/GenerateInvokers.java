@@ -0,0 +1,17 @@
+package io.github.moonlightmaya.script.apis;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class of static helpers that scripts call through hand-registered
+ * JavaFunctions, like the vector and matrix operators. The invoker processor
+ * generates a [ClassName]Invokers for it, whose get(methodName) returns a
+ * JavaFunction calling that method directly instead of through reflection.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateInvokers {
+}
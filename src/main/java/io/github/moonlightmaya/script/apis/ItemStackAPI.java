@@ -13,6 +13,8 @@ public class ItemStackAPI {
 
     static {
         ITEMSTACK_CLASS = PetPetReflector.reflect(ItemStackAPI.class, "ItemStack");
+        //Swap the reflective bindings for the generated direct ones
+        ItemStackAPIInvokers.install(ITEMSTACK_CLASS);
     }
 
     @PetPetWhitelist
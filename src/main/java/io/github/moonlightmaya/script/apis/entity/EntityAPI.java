@@ -1,10 +1,10 @@
 package io.github.moonlightmaya.script.apis.entity;
 
 import io.github.moonlightmaya.manage.AspectManager;
+import io.github.moonlightmaya.script.apis.nbt.NbtCompoundView;
 import io.github.moonlightmaya.script.apis.world.WorldAPI;
 import io.github.moonlightmaya.util.GroupUtils;
 import io.github.moonlightmaya.util.MathUtils;
-import io.github.moonlightmaya.util.NbtUtils;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.*;
@@ -16,13 +16,13 @@ import net.minecraft.item.Items;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.Registries;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.dimension.DimensionType;
 import org.joml.Vector2d;
 import org.joml.Vector3d;
 import petpet.external.PetPetReflector;
 import petpet.external.PetPetWhitelist;
 import petpet.lang.run.PetPetClass;
-import petpet.types.PetPetTable;
 import petpet.types.immutable.PetPetListView;
 
 import java.util.Iterator;
@@ -37,6 +37,8 @@ public class EntityAPI {
 
     static {
         ENTITY_CLASS = PetPetReflector.reflect(EntityAPI.class, "Entity");
+        //Swap the reflective bindings for the generated direct ones
+        EntityAPIInvokers.install(ENTITY_CLASS);
     }
 
     /**
@@ -173,6 +175,43 @@ public class EntityAPI {
     public static Vector3d getLookDir(Entity entity) {
         return MathUtils.fromVec3d(entity.getRotationVector());
     }
+
+    /**
+     * "Into" versions of the above, which write into the given vector and return it,
+     * instead of creating a new one. For scripts calling these every frame.
+     */
+    @PetPetWhitelist
+    public static Vector3d getPosInto_1(Entity entity, Vector3d dest) {
+        return dest.set(entity.getX(), entity.getY(), entity.getZ());
+    }
+    @PetPetWhitelist
+    public static Vector3d getPosInto_2(Entity entity, Vector3d dest, double delta) {
+        return dest.set(
+                MathHelper.lerp(delta, entity.prevX, entity.getX()),
+                MathHelper.lerp(delta, entity.prevY, entity.getY()),
+                MathHelper.lerp(delta, entity.prevZ, entity.getZ())
+        );
+    }
+    @PetPetWhitelist
+    public static Vector2d getRotInto_1(Entity entity, Vector2d dest) {
+        return dest.set(entity.getPitch(), entity.getYaw());
+    }
+    @PetPetWhitelist
+    public static Vector2d getRotInto_2(Entity entity, Vector2d dest, double delta) {
+        return dest.set(entity.getPitch((float) delta), entity.getYaw((float) delta));
+    }
+    @PetPetWhitelist
+    public static Vector3d getVelocityInto(Entity entity, Vector3d dest) {
+        return dest.set(
+                entity.getX() - entity.prevX,
+                entity.getY() - entity.prevY,
+                entity.getZ() - entity.prevZ
+        );
+    }
+    @PetPetWhitelist
+    public static Vector3d getLookDirInto(Entity entity, Vector3d dest) {
+        return MathUtils.fromVec3d(entity.getRotationVector(), dest);
+    }
     @PetPetWhitelist
     public static Vector3d getBoundingBox(Entity entity) {
         EntityDimensions dim = entity.getDimensions(entity.getPose());
@@ -180,6 +219,19 @@ public class EntityAPI {
     }
 
 
+    /**
+     * snapshot
+     */
+    @PetPetWhitelist
+    public static EntitySnapshot snapshot_0(Entity entity) {
+        return new EntitySnapshot().update_1(entity);
+    }
+    @PetPetWhitelist
+    public static EntitySnapshot snapshot_1(Entity entity, double delta) {
+        return new EntitySnapshot().update_2(entity, delta);
+    }
+
+
     /**
      * string
      */
@@ -216,8 +268,8 @@ public class EntityAPI {
         return index == -1 && iter.hasNext() ? iter.next() : null;
     }
     @PetPetWhitelist
-    public static PetPetTable<String, Object> getNbt(Entity entity) {
-        return NbtUtils.toPetPet(entity.writeNbt(new NbtCompound()));
+    public static NbtCompoundView getNbt(Entity entity) {
+        return new NbtCompoundView(entity.writeNbt(new NbtCompound()));
     }
     @PetPetWhitelist
     public static Entity getVehicle(Entity entity) {
@@ -0,0 +1,104 @@
+package io.github.moonlightmaya.script.apis.entity;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import petpet.external.PetPetWhitelist;
+
+/**
+ * The commonly used state of an entity, all read in one call.
+ *
+ * A typical tick asks for the position, rotation, velocity, health and a
+ * handful of flags, each one a separate call into Java with its own boxed
+ * result. A snapshot gathers all of them at once with update(), and scripts
+ * read them back as plain fields. Snapshots are meant to be kept and updated
+ * each tick or frame: update() writes into the same vectors rather than
+ * making new ones, so keep a copy of a vector if you need last tick's value.
+ *
+ * The living entity fields are left at 0/false for entities which aren't living.
+ */
+@PetPetWhitelist
+public class EntitySnapshot {
+
+    //Position and motion
+    @PetPetWhitelist public final Vector3d pos = new Vector3d();
+    @PetPetWhitelist public final Vector2d rot = new Vector2d(); //pitch, yaw, like getRot()
+    @PetPetWhitelist public final Vector3d velocity = new Vector3d();
+    @PetPetWhitelist public final Vector3d lookDir = new Vector3d();
+    @PetPetWhitelist public double headYaw, bodyYaw, eyeHeight;
+
+    //State
+    @PetPetWhitelist public String pose;
+    @PetPetWhitelist public boolean isAlive, isOnGround, isSneaking, isCrouching, isSprinting;
+    @PetPetWhitelist public boolean isWet, isInWater, isUnderwater, isInLava, isOnFire, isInvisible;
+
+    //Living entities
+    @PetPetWhitelist public boolean isLiving;
+    @PetPetWhitelist public double health, maxHealth, armor;
+    @PetPetWhitelist public boolean isGliding, isVisuallySwimming, isClimbing, isUsingItem, isBlocking;
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public EntitySnapshot update_1(Entity entity) {
+        return update_2(entity, 1);
+    }
+
+    /**
+     * Fill in the fields from the entity. Positions and angles are interpolated by delta, like getPos(delta).
+     */
+    @PetPetWhitelist
+    public EntitySnapshot update_2(Entity entity, double delta) {
+        float tickDelta = (float) delta;
+        pos.set(
+                MathHelper.lerp(delta, entity.prevX, entity.getX()),
+                MathHelper.lerp(delta, entity.prevY, entity.getY()),
+                MathHelper.lerp(delta, entity.prevZ, entity.getZ())
+        );
+        rot.set(entity.getPitch(tickDelta), entity.getYaw(tickDelta));
+        velocity.set(entity.getX() - entity.prevX, entity.getY() - entity.prevY, entity.getZ() - entity.prevZ);
+        Vec3d look = entity.getRotationVector();
+        lookDir.set(look.x, look.y, look.z);
+        eyeHeight = entity.getEyeHeight(entity.getPose());
+
+        pose = entity.getPose().name();
+        isAlive = entity.isAlive();
+        isOnGround = entity.isOnGround();
+        isSneaking = entity.isSneaking();
+        isCrouching = entity.isInSneakingPose();
+        isSprinting = entity.isSprinting();
+        isWet = entity.isWet();
+        isInWater = entity.isTouchingWater();
+        isUnderwater = entity.isSubmergedInWater();
+        isInLava = entity.isInLava();
+        isOnFire = entity.isOnFire();
+        isInvisible = entity.isInvisible();
+
+        isLiving = entity instanceof LivingEntity;
+        if (entity instanceof LivingEntity living) {
+            headYaw = MathHelper.lerp(delta, living.prevHeadYaw, living.headYaw);
+            bodyYaw = MathHelper.lerp(delta, living.prevBodyYaw, living.bodyYaw);
+            health = living.getHealth();
+            maxHealth = living.getMaxHealth();
+            armor = living.getArmor();
+            isGliding = living.isFallFlying();
+            isVisuallySwimming = living.isInSwimmingPose();
+            isClimbing = living.isClimbing();
+            isUsingItem = living.isUsingItem();
+            isBlocking = living.isBlocking();
+        } else {
+            headYaw = bodyYaw = entity.getYaw(tickDelta);
+            health = maxHealth = armor = 0;
+            isGliding = isVisuallySwimming = isClimbing = isUsingItem = isBlocking = false;
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "EntitySnapshot";
+    }
+}
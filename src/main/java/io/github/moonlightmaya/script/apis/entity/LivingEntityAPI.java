@@ -16,6 +16,8 @@ public class LivingEntityAPI {
 
     static {
         LIVING_ENTITY_CLASS = PetPetReflector.reflect(LivingEntityAPI.class, "LivingEntity");
+        //Swap the reflective bindings for the generated direct ones
+        LivingEntityAPIInvokers.install(LIVING_ENTITY_CLASS);
 
         //TODO: Make it extend, once that feature is in PetPet
         LIVING_ENTITY_CLASS.methods.putAll(EntityAPI.ENTITY_CLASS.methods);
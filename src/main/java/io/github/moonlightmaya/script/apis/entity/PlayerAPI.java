@@ -1,7 +1,7 @@
 package io.github.moonlightmaya.script.apis.entity;
 
+import io.github.moonlightmaya.script.apis.nbt.NbtCompoundView;
 import io.github.moonlightmaya.util.EntityUtils;
-import io.github.moonlightmaya.util.NbtUtils;
 import net.minecraft.client.network.PlayerListEntry;
 import net.minecraft.client.render.entity.PlayerModelPart;
 import net.minecraft.client.util.DefaultSkinHelper;
@@ -10,7 +10,6 @@ import petpet.external.PetPetReflector;
 import petpet.external.PetPetWhitelist;
 import petpet.lang.run.PetPetClass;
 import petpet.lang.run.PetPetException;
-import petpet.types.PetPetTable;
 
 @PetPetWhitelist
 public class PlayerAPI {
@@ -19,6 +18,8 @@ public class PlayerAPI {
 
     static {
         PLAYER_CLASS = PetPetReflector.reflect(PlayerAPI.class, "Player");
+        //Swap the reflective bindings for the generated direct ones
+        PlayerAPIInvokers.install(PLAYER_CLASS);
 
         //TODO: Make it extend, once that feature is in PetPet
         PLAYER_CLASS.methods.putAll(LivingEntityAPI.LIVING_ENTITY_CLASS.methods);
@@ -98,8 +99,8 @@ public class PlayerAPI {
         return entry == null ? null : entry.getGameMode().name();
     }
     @PetPetWhitelist
-    public static PetPetTable<String, Object> getShoulderEntity(PlayerEntity player, boolean rightShoulder) {
-        return NbtUtils.toPetPet(rightShoulder ? player.getShoulderEntityRight() : player.getShoulderEntityLeft());
+    public static NbtCompoundView getShoulderEntity(PlayerEntity player, boolean rightShoulder) {
+        return new NbtCompoundView(rightShoulder ? player.getShoulderEntityRight() : player.getShoulderEntityLeft());
     }
 
     //Extras
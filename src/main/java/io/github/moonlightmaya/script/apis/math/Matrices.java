@@ -1,10 +1,19 @@
 package io.github.moonlightmaya.script.apis.math;
 
+import io.github.moonlightmaya.script.apis.GenerateInvokers;
 import org.joml.*;
 import petpet.lang.run.JavaFunction;
 import petpet.lang.run.PetPetClass;
 import petpet.lang.run.PetPetException;
+import petpet.types.PetPetList;
 
+import java.util.List;
+
+/**
+ * The static helpers below are registered through the generated MatricesInvokers,
+ * so scripts call them directly rather than through reflection.
+ */
+@GenerateInvokers
 public class Matrices {
 
     public static final PetPetClass MAT_2, MAT_3, MAT_4;
@@ -37,10 +46,16 @@ public class Matrices {
         MAT_4.addMethod(petpetName, new JavaFunction(Matrix4d.class, javaName, true, Matrix4dc.class));
     }
 
+    private static void registerHelperDest(String petpetName, String javaName) {
+        MAT_2.addMethod(petpetName, new JavaFunction(Matrix2d.class, javaName, true, Matrix2dc.class, Matrix2d.class));
+        MAT_3.addMethod(petpetName, new JavaFunction(Matrix3d.class, javaName, true, Matrix3dc.class, Matrix3d.class));
+        MAT_4.addMethod(petpetName, new JavaFunction(Matrix4d.class, javaName, true, Matrix4dc.class, Matrix4d.class));
+    }
+
     private static void registerHelperOverload(String petpetName, String type, String javaNameWithoutNumber) {
-        MAT_2.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "2"), new JavaFunction(Matrices.class, javaNameWithoutNumber + "2", false));
-        MAT_3.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "3"), new JavaFunction(Matrices.class, javaNameWithoutNumber + "3", false));
-        MAT_4.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "4"), new JavaFunction(Matrices.class, javaNameWithoutNumber + "4", false));
+        MAT_2.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "2"), MatricesInvokers.get(javaNameWithoutNumber + "2"));
+        MAT_3.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "3"), MatricesInvokers.get(javaNameWithoutNumber + "3"));
+        MAT_4.addMethod(petpetName + "_" + type + (type.equals("num") ? "" : "4"), MatricesInvokers.get(javaNameWithoutNumber + "4"));
     }
 
     static {
@@ -49,9 +64,9 @@ public class Matrices {
             MAT_3 = new PetPetClass("mat3");
             MAT_4 = new PetPetClass("mat4");
 
-            MAT_2_CREATE = new JavaFunction(Matrices.class, "create2", false);
-            MAT_3_CREATE = new JavaFunction(Matrices.class, "create3", false);
-            MAT_4_CREATE = new JavaFunction(Matrices.class, "create4", false);
+            MAT_2_CREATE = MatricesInvokers.get("create2");
+            MAT_3_CREATE = MatricesInvokers.get("create3");
+            MAT_4_CREATE = MatricesInvokers.get("create4");
 
             //Common
             registerHelper("det", "determinant");
@@ -74,22 +89,45 @@ public class Matrices {
 
             //In place modification
             registerHelperCType("add", "add");
-            registerHelperCType("sub", "add");
+            registerHelperCType("sub", "sub");
             registerHelperCType("mul", "mul");
             registerHelperCType("mulR", "mulLocal");
+            MAT_2.addMethod("smul", MatricesInvokers.get("smulIn2"));
+            MAT_3.addMethod("smul", MatricesInvokers.get("smulIn3"));
+            MAT_4.addMethod("smul", MatricesInvokers.get("smulIn4"));
+
+            //Destination versions, writing the result into the last arg instead of this matrix.
+            //Lets scripts keep their temporaries around between frames, instead of the operators
+            //creating a new matrix for every step of an expression.
+            registerHelperDest("addInto", "add");
+            registerHelperDest("subInto", "sub");
+            registerHelperDest("mulInto", "mul");
+
+            //Transform a vector, in place or into a destination
+            MAT_2.addMethod("tf_1", new JavaFunction(Matrix2d.class, "transform", true, Vector2d.class));
+            MAT_3.addMethod("tf_1", new JavaFunction(Matrix3d.class, "transform", true, Vector3d.class));
+            MAT_4.addMethod("tf_1", new JavaFunction(Matrix4d.class, "transform", true, Vector4d.class));
+            MAT_2.addMethod("tf_2", new JavaFunction(Matrix2d.class, "transform", true, Vector2dc.class, Vector2d.class));
+            MAT_3.addMethod("tf_2", new JavaFunction(Matrix3d.class, "transform", true, Vector3dc.class, Vector3d.class));
+            MAT_4.addMethod("tf_2", new JavaFunction(Matrix4d.class, "transform", true, Vector4dc.class, Vector4d.class));
+
+            //Multiply by a whole list of matrices in one call, see chainMat
+            MAT_2.addMethod("mulChain", MatricesInvokers.get("chainMat2"));
+            MAT_3.addMethod("mulChain", MatricesInvokers.get("chainMat3"));
+            MAT_4.addMethod("mulChain", MatricesInvokers.get("chainMat4"));
 
             //Scale
-            MAT_2.addMethod("scale_1", new JavaFunction(Matrices.class, "scale2", false));
-            MAT_3.addMethod("scale_1", new JavaFunction(Matrices.class, "scale3", false));
-            MAT_4.addMethod("scale_1", new JavaFunction(Matrices.class, "scale4", false));
+            MAT_2.addMethod("scale_1", MatricesInvokers.get("scale2"));
+            MAT_3.addMethod("scale_1", MatricesInvokers.get("scale3"));
+            MAT_4.addMethod("scale_1", MatricesInvokers.get("scale4"));
             registerHelperDType("scale", "scale");
 
             //Rotate
             MAT_2.addMethod("rot", new JavaFunction(Matrix2d.class, "rotate", true, double.class));
 
-            MAT_3.addMethod("rotXYZ_1", new JavaFunction(Matrices.class, "rotXYZ3", false));
+            MAT_3.addMethod("rotXYZ_1", MatricesInvokers.get("rotXYZ3"));
             MAT_3.addMethod("rotXYZ_3", new JavaFunction(Matrix3d.class, "rotateXYZ", true, double.class, double.class, double.class));
-            MAT_3.addMethod("rotZYX_1", new JavaFunction(Matrices.class, "rotZYX3", false));
+            MAT_3.addMethod("rotZYX_1", MatricesInvokers.get("rotZYX3"));
             MAT_3.addMethod("rotZYX_3", new JavaFunction(Matrix3d.class, "rotateZYX", true, double.class, double.class, double.class));
 
             MAT_4.addMethod("rotXYZ_1", new JavaFunction(Matrix4d.class, "rotateXYZ", true, Vector3d.class));
@@ -173,6 +211,62 @@ public class Matrices {
         return new Vector4d(right).mul(left);
     }
 
+    //In place scalar multiplication, same as the operator but without the copy
+
+    public static Matrix2d smulIn2(Matrix2d mat, double s) {
+        return mat.scale(s);
+    }
+    public static Matrix3d smulIn3(Matrix3d mat, double s) {
+        return mat.scale(s);
+    }
+    public static Matrix4d smulIn4(Matrix4d mat, double s) {
+        double m30 = mat.m30(), m31 = mat.m31(), m32 = mat.m32(), m33 = mat.m33();
+        return mat.scale(s).m30(m30 * s).m31(m31 * s).m32(m32 * s).m33(m33 * s);
+    }
+
+    //Multiply chains. x:mulChain([a, b, c]) sets x to a * b * c * x, for a matrix or vector x,
+    //without any of the temporaries that writing it out with operators would create.
+    //The list is applied from the back, so the last matrix is the first one applied.
+
+    private static <T> T chainElement(List<?> chain, int index, Class<T> clazz, String name) {
+        Object element = chain.get(index);
+        if (!clazz.isInstance(element))
+            throw new PetPetException("mulChain() expected a list of " + name + ", but element " + index + " was " + element);
+        return clazz.cast(element);
+    }
+
+    public static Matrix2d chainMat2(Matrix2d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            target.mulLocal(chainElement(chain, i, Matrix2d.class, "mat2"));
+        return target;
+    }
+    public static Matrix3d chainMat3(Matrix3d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            target.mulLocal(chainElement(chain, i, Matrix3d.class, "mat3"));
+        return target;
+    }
+    public static Matrix4d chainMat4(Matrix4d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            target.mulLocal(chainElement(chain, i, Matrix4d.class, "mat4"));
+        return target;
+    }
+
+    public static Vector2d chainVec2(Vector2d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chainElement(chain, i, Matrix2d.class, "mat2").transform(target);
+        return target;
+    }
+    public static Vector3d chainVec3(Vector3d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chainElement(chain, i, Matrix3d.class, "mat3").transform(target);
+        return target;
+    }
+    public static Vector4d chainVec4(Vector4d target, PetPetList<?> chain) {
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chainElement(chain, i, Matrix4d.class, "mat4").transform(target);
+        return target;
+    }
+
     //Other functions
 
     public static Matrix2d create2() {
@@ -0,0 +1,162 @@
+package io.github.moonlightmaya.script.apis.math;
+
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.joml.Vector4d;
+import petpet.lang.run.PetPetException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A parsed swizzle string, like "xy" or "zyx_". Swizzles get parsed once, the
+ * first time any script uses them, and are looked up by string after that, so
+ * a .xy in a loop is a hash lookup and a few array reads rather than a parse.
+ * There's one table for each size of vector being swizzled, since "z" is only
+ * valid on vec3 and vec4.
+ */
+class Swizzle {
+
+    private static final int ZERO = -1; //Index for '_', which reads as 0
+    private static final Swizzle COPY = new Swizzle(null, false);
+
+    @SuppressWarnings("unchecked")
+    private static final Map<String, Swizzle>[] CACHE = new Map[] {new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>()};
+
+    private final int[] indices; //Null for the copy swizzle, "c"
+    private final boolean writable; //No '_', no repeated components
+
+    private Swizzle(int[] indices, boolean writable) {
+        this.indices = indices;
+        this.writable = writable;
+    }
+
+    static Swizzle get(String swizzler, int sourceSize) {
+        Map<String, Swizzle> cache = CACHE[sourceSize - 2];
+        Swizzle swizzle = cache.get(swizzler);
+        if (swizzle == null) {
+            swizzle = parse(swizzler, sourceSize); //Throws if invalid, so invalid strings are never cached
+            cache.put(swizzler, swizzle);
+        }
+        return swizzle;
+    }
+
+    private static Swizzle parse(String swizzler, int sourceSize) {
+        if (swizzler.equals("c"))
+            return COPY;
+        if (swizzler.length() < 2 || swizzler.length() > 4)
+            throw new PetPetException("Invalid swizzle for vec" + sourceSize + ": " + swizzler + ", must be length 2 to 4");
+        int[] indices = new int[swizzler.length()];
+        boolean writable = true;
+        int seen = 0;
+        for (int i = 0; i < indices.length; i++) {
+            char c = swizzler.charAt(i);
+            int index = switch (c) {
+                case 'x', 'r' -> 0;
+                case 'y', 'g' -> 1;
+                case 'z', 'b' -> 2;
+                case 'w', 'a' -> 3;
+                case '_' -> ZERO;
+                default -> sourceSize;
+            };
+            if (index >= sourceSize)
+                throw new PetPetException("Invalid swizzle for vec" + sourceSize + ", unrecognized character '" + c + "'");
+            if (index == ZERO || (seen & 1 << index) != 0)
+                writable = false;
+            else
+                seen |= 1 << index;
+            indices[i] = index;
+        }
+        return new Swizzle(indices, writable);
+    }
+
+    //Getters
+
+    private static Object make(int size, double x, double y, double z, double w) {
+        return switch (size) {
+            case 2 -> new Vector2d(x, y);
+            case 3 -> new Vector3d(x, y, z);
+            default -> new Vector4d(x, y, z, w);
+        };
+    }
+
+    private double read(Vector2d v, int i) {
+        return i < indices.length && indices[i] != ZERO ? v.get(indices[i]) : 0;
+    }
+    private double read(Vector3d v, int i) {
+        return i < indices.length && indices[i] != ZERO ? v.get(indices[i]) : 0;
+    }
+    private double read(Vector4d v, int i) {
+        return i < indices.length && indices[i] != ZERO ? v.get(indices[i]) : 0;
+    }
+
+    Object apply(Vector2d v) {
+        if (indices == null) return new Vector2d(v);
+        return make(indices.length, read(v, 0), read(v, 1), read(v, 2), read(v, 3));
+    }
+    Object apply(Vector3d v) {
+        if (indices == null) return new Vector3d(v);
+        return make(indices.length, read(v, 0), read(v, 1), read(v, 2), read(v, 3));
+    }
+    Object apply(Vector4d v) {
+        if (indices == null) return new Vector4d(v);
+        return make(indices.length, read(v, 0), read(v, 1), read(v, 2), read(v, 3));
+    }
+
+    //Setters. The value is either a number, which goes in every swizzled component,
+    //or a vector with as many components as the swizzle.
+
+    private void checkWritable(String swizzler, int sourceSize) {
+        if (indices == null || !writable)
+            throw new PetPetException("Cannot assign to swizzle \"" + swizzler + "\" of vec" + sourceSize + ", it must not copy, repeat components or use _");
+    }
+
+    private double valueComponent(Object value, int i, String swizzler) {
+        if (value instanceof Double d) return d;
+        int size = value instanceof Vector2d ? 2 : value instanceof Vector3d ? 3 : value instanceof Vector4d ? 4 : 0;
+        if (size != indices.length)
+            throw new PetPetException("Cannot assign " + value + " to swizzle \"" + swizzler + "\", expected a number or vec" + indices.length);
+        return switch (size) {
+            case 2 -> ((Vector2d) value).get(i);
+            case 3 -> ((Vector3d) value).get(i);
+            default -> ((Vector4d) value).get(i);
+        };
+    }
+
+    //Every value component is read before any is written, since the value
+    //may be the vector itself, as in v.yx = v
+
+    void assign(Vector2d v, String swizzler, Object value) {
+        checkWritable(swizzler, 2);
+        write(v, valueComponent(value, 0, swizzler), valueComponent(value, 1, swizzler), readOrZero(value, 2, swizzler), readOrZero(value, 3, swizzler));
+    }
+    void assign(Vector3d v, String swizzler, Object value) {
+        checkWritable(swizzler, 3);
+        write(v, valueComponent(value, 0, swizzler), valueComponent(value, 1, swizzler), readOrZero(value, 2, swizzler), readOrZero(value, 3, swizzler));
+    }
+    void assign(Vector4d v, String swizzler, Object value) {
+        checkWritable(swizzler, 4);
+        write(v, valueComponent(value, 0, swizzler), valueComponent(value, 1, swizzler), readOrZero(value, 2, swizzler), readOrZero(value, 3, swizzler));
+    }
+
+    //Components past the end of the swizzle aren't written, so they read as 0
+    private double readOrZero(Object value, int i, String swizzler) {
+        return i < indices.length ? valueComponent(value, i, swizzler) : 0;
+    }
+
+    private void write(Vector2d v, double a, double b, double c, double d) {
+        v.setComponent(indices[0], a).setComponent(indices[1], b);
+        if (indices.length > 2) v.setComponent(indices[2], c);
+        if (indices.length > 3) v.setComponent(indices[3], d);
+    }
+    private void write(Vector3d v, double a, double b, double c, double d) {
+        v.setComponent(indices[0], a).setComponent(indices[1], b);
+        if (indices.length > 2) v.setComponent(indices[2], c);
+        if (indices.length > 3) v.setComponent(indices[3], d);
+    }
+    private void write(Vector4d v, double a, double b, double c, double d) {
+        v.setComponent(indices[0], a).setComponent(indices[1], b);
+        if (indices.length > 2) v.setComponent(indices[2], c);
+        if (indices.length > 3) v.setComponent(indices[3], d);
+    }
+}
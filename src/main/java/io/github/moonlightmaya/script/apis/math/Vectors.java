@@ -1,10 +1,16 @@
 package io.github.moonlightmaya.script.apis.math;
 
+import io.github.moonlightmaya.script.apis.GenerateInvokers;
 import org.joml.*;
 import petpet.lang.run.JavaFunction;
 import petpet.lang.run.PetPetClass;
 import petpet.lang.run.PetPetException;
 
+/**
+ * The static helpers below are registered through the generated VectorsInvokers,
+ * so scripts call them directly rather than through reflection.
+ */
+@GenerateInvokers
 public class Vectors {
 
     public static final PetPetClass VEC_2, VEC_3, VEC_4;
@@ -41,9 +47,9 @@ public class Vectors {
     }
 
     private static void registerHelperOverload(String petpetName, boolean isNum, String javaNameWithoutNumber) {
-        VEC_2.addMethod(petpetName + "_" + (isNum ? "num" : "vec2"), new JavaFunction(Vectors.class, javaNameWithoutNumber + "2", false));
-        VEC_3.addMethod(petpetName + "_" + (isNum ? "num" : "vec3"), new JavaFunction(Vectors.class, javaNameWithoutNumber + "3", false));
-        VEC_4.addMethod(petpetName + "_" + (isNum ? "num" : "vec4"), new JavaFunction(Vectors.class, javaNameWithoutNumber + "4", false));
+        VEC_2.addMethod(petpetName + "_" + (isNum ? "num" : "vec2"), VectorsInvokers.get(javaNameWithoutNumber + "2"));
+        VEC_3.addMethod(petpetName + "_" + (isNum ? "num" : "vec3"), VectorsInvokers.get(javaNameWithoutNumber + "3"));
+        VEC_4.addMethod(petpetName + "_" + (isNum ? "num" : "vec4"), VectorsInvokers.get(javaNameWithoutNumber + "4"));
     }
 
     static {
@@ -52,9 +58,9 @@ public class Vectors {
             VEC_3 = new PetPetClass("vec3");
             VEC_4 = new PetPetClass("vec4");
 
-            VEC_2_CREATE = new JavaFunction(Vectors.class, "create2", false);
-            VEC_3_CREATE = new JavaFunction(Vectors.class, "create3", false);
-            VEC_4_CREATE = new JavaFunction(Vectors.class, "create4", false);
+            VEC_2_CREATE = VectorsInvokers.get("create2");
+            VEC_3_CREATE = VectorsInvokers.get("create3");
+            VEC_4_CREATE = VectorsInvokers.get("create4");
 
             //Length and length^2
             registerHelper("len", "length", new Class[0]);
@@ -98,7 +104,7 @@ public class Vectors {
 
             //Dot
             VEC_2.addMethod("dot_1", new JavaFunction(Vector2d.class, "dot", true));
-            VEC_2.addMethod("dot_2", new JavaFunction(Vectors.class, "dot2", false)); //Joml forgor to add this one lol
+            VEC_2.addMethod("dot_2", VectorsInvokers.get("dot2")); //Joml forgor to add this one lol
             VEC_3.addMethod("dot_1", new JavaFunction(Vector3d.class, "dot", true, Vector3dc.class));
             VEC_3.addMethod("dot_3", new JavaFunction(Vector3d.class, "dot", true, double.class, double.class, double.class));
             VEC_4.addMethod("dot_1", new JavaFunction(Vector4d.class, "dot", true, Vector4dc.class));
@@ -106,11 +112,14 @@ public class Vectors {
 
             //Copy functionality is provided in the swizzle methods, do ".c"
             //Swizzle
-            VEC_2.addMethod("__get_str", new JavaFunction(Vectors.class, "swizzle2", false));
-            VEC_3.addMethod("__get_str", new JavaFunction(Vectors.class, "swizzle3", false));
-            VEC_4.addMethod("__get_str", new JavaFunction(Vectors.class, "swizzle4", false));
+            VEC_2.addMethod("__get_str", VectorsInvokers.get("swizzle2"));
+            VEC_3.addMethod("__get_str", VectorsInvokers.get("swizzle3"));
+            VEC_4.addMethod("__get_str", VectorsInvokers.get("swizzle4"));
 
-            //Swizzle setters (eventually, i dont feel up to it rn)
+            //Swizzle setters
+            VEC_2.addMethod("__set_str", VectorsInvokers.get("setSwizzle2"));
+            VEC_3.addMethod("__set_str", VectorsInvokers.get("setSwizzle3"));
+            VEC_4.addMethod("__set_str", VectorsInvokers.get("setSwizzle4"));
 
             //In place modification functions
             registerHelper("zero", "zero");
@@ -121,6 +130,18 @@ public class Vectors {
             registerHelperCType("sub_1", "sub");
             registerHelperDType("sub", "sub");
 
+            //In place versions of the negation and modulo operators. The operators themselves
+            //always create a new vector, so scripts reusing a vector each frame can use these instead
+            registerHelper("neg", "negate", new Class[0]);
+            VEC_2.addMethod("mod_1", VectorsInvokers.get("modIn2"));
+            VEC_3.addMethod("mod_1", VectorsInvokers.get("modIn3"));
+            VEC_4.addMethod("mod_1", VectorsInvokers.get("modIn4"));
+
+            //Transform by a whole list of matrices at once, see Matrices.chainVec
+            VEC_2.addMethod("mulChain", MatricesInvokers.get("chainVec2"));
+            VEC_3.addMethod("mulChain", MatricesInvokers.get("chainVec3"));
+            VEC_4.addMethod("mulChain", MatricesInvokers.get("chainVec4"));
+
             //tf for transform, "transform" is a long word
             VEC_2.addMethod("tf", new JavaFunction(Vector2d.class, "mul", true, Matrix2dc.class));
             VEC_3.addMethod("tf", new JavaFunction(Vector3d.class, "mul", true, Matrix3dc.class));
@@ -140,7 +161,7 @@ public class Vectors {
             registerHelperCType("mul_1", "mul"); //at least i have this one lone case
             VEC_2.addMethod("mul_2", new JavaFunction(Vector2d.class, "mul", true, double.class, double.class));
             VEC_3.addMethod("mul_3", new JavaFunction(Vector3d.class, "mul", true, double.class, double.class, double.class));
-            VEC_4.addMethod("mul_4", new JavaFunction(Vectors.class, "mul4d", false));
+            VEC_4.addMethod("mul_4", VectorsInvokers.get("mul4d"));
             registerHelper("scale", "mul", double.class);
 
             VEC_2.addMethod("div_1", new JavaFunction(Vector2d.class, "div", true, Vector2d.class));
@@ -149,16 +170,16 @@ public class Vectors {
 
             VEC_2.addMethod("div_2", new JavaFunction(Vector2d.class, "div", true, double.class, double.class));
             VEC_3.addMethod("div_3", new JavaFunction(Vector3d.class, "div", true, double.class, double.class, double.class));
-            VEC_4.addMethod("div_4", new JavaFunction(Vectors.class, "div4d", false));
+            VEC_4.addMethod("div_4", VectorsInvokers.get("div4d"));
 
             //Operator overloads
             registerHelperOverload("__add", false, "add");
             registerHelperOverload("__sub", false, "sub");
             registerHelperOverload("__mul", false, "mul");
 
-            JavaFunction smul2 = new JavaFunction(Vectors.class, "smul2", false);
-            JavaFunction smul3 = new JavaFunction(Vectors.class, "smul3", false);
-            JavaFunction smul4 = new JavaFunction(Vectors.class, "smul4", false);
+            JavaFunction smul2 = VectorsInvokers.get("smul2");
+            JavaFunction smul3 = VectorsInvokers.get("smul3");
+            JavaFunction smul4 = VectorsInvokers.get("smul4");
 
             VEC_2.addMethod("__mul_num", smul2);
             VEC_3.addMethod("__mul_num", smul3);
@@ -173,9 +194,9 @@ public class Vectors {
             registerHelperOverload("__mod", false, "mod");
             registerHelperOverload("__mod", true, "smod");
 
-            VEC_2.addMethod("__neg", new JavaFunction(Vectors.class, "neg2", false));
-            VEC_3.addMethod("__neg", new JavaFunction(Vectors.class, "neg3", false));
-            VEC_4.addMethod("__neg", new JavaFunction(Vectors.class, "neg4", false));
+            VEC_2.addMethod("__neg", VectorsInvokers.get("neg2"));
+            VEC_3.addMethod("__neg", VectorsInvokers.get("neg3"));
+            VEC_4.addMethod("__neg", VectorsInvokers.get("neg4"));
 
         } catch (Exception e) {
             throw new RuntimeException("joml has done a cringe :(", e);
@@ -294,6 +315,29 @@ public class Vectors {
         return new Vector4d(v.x % s, v.y % s, v.z % s, v.w % s);
     }
 
+    //In place mod, by a number or a vector of the same size
+    public static Vector2d modIn2(Vector2d v, Object m) {
+        if (m instanceof Double d)
+            return v.set(v.x % d, v.y % d);
+        else if (m instanceof Vector2d vec)
+            return v.set(v.x % vec.x, v.y % vec.y);
+        throw new PetPetException("Attempt to call vec2.mod() with invalid arg, expected num or vec2");
+    }
+    public static Vector3d modIn3(Vector3d v, Object m) {
+        if (m instanceof Double d)
+            return v.set(v.x % d, v.y % d, v.z % d);
+        else if (m instanceof Vector3d vec)
+            return v.set(v.x % vec.x, v.y % vec.y, v.z % vec.z);
+        throw new PetPetException("Attempt to call vec3.mod() with invalid arg, expected num or vec3");
+    }
+    public static Vector4d modIn4(Vector4d v, Object m) {
+        if (m instanceof Double d)
+            return v.set(v.x % d, v.y % d, v.z % d, v.w % d);
+        else if (m instanceof Vector4d vec)
+            return v.set(v.x % vec.x, v.y % vec.y, v.z % vec.z, v.w % vec.w);
+        throw new PetPetException("Attempt to call vec4.mod() with invalid arg, expected num or vec4");
+    }
+
     //Unary negation
     public static Vector2d neg2(Vector2d v) {
         return new Vector2d(-v.x, -v.y);
@@ -335,103 +379,29 @@ public class Vectors {
     }
 
 
-    private static double swizzle2Help(Vector2d swizzlee, char c) {
-        return switch (c) {
-            case 'x', 'r' -> swizzlee.x;
-            case 'y', 'g' -> swizzlee.y;
-            case '_' -> 0;
-            default -> throw new PetPetException("Invalid swizzle for vec2, unrecognized character '" + c + "'");
-        };
-    }
-
+    //Swizzles are parsed once and cached, see Swizzle
     public static Object swizzle2(Vector2d swizzlee, String swizzler) {
-        if (swizzler.equals("c")) //copy
-            return new Vector2d(swizzlee);
-        return switch (swizzler.length()) {
-            case 2 -> new Vector2d(
-                    swizzle2Help(swizzlee, swizzler.charAt(0)),
-                    swizzle2Help(swizzlee, swizzler.charAt(1))
-            );
-            case 3 -> new Vector3d(
-                    swizzle2Help(swizzlee, swizzler.charAt(0)),
-                    swizzle2Help(swizzlee, swizzler.charAt(1)),
-                    swizzle2Help(swizzlee, swizzler.charAt(2))
-            );
-            case 4 -> new Vector4d(
-                    swizzle2Help(swizzlee, swizzler.charAt(0)),
-                    swizzle2Help(swizzlee, swizzler.charAt(1)),
-                    swizzle2Help(swizzlee, swizzler.charAt(2)),
-                    swizzle2Help(swizzlee, swizzler.charAt(3))
-            );
-            default -> throw new PetPetException("Invalid swizzle for vec2: " + swizzler + ", must be length 2 to 4");
-        };
-    }
-
-    private static double swizzle3Help(Vector3d swizzlee, char c) {
-        return switch (c) {
-            case 'x', 'r' -> swizzlee.x;
-            case 'y', 'g' -> swizzlee.y;
-            case 'z', 'b' -> swizzlee.z;
-            case '_' -> 0;
-            default -> throw new PetPetException("Invalid swizzle for vec3, unrecognized character '" + c + "'");
-        };
+        return Swizzle.get(swizzler, 2).apply(swizzlee);
     }
-
     public static Object swizzle3(Vector3d swizzlee, String swizzler) {
-        if (swizzler.equals("c")) //copy
-            return new Vector3d(swizzlee);
-        return switch (swizzler.length()) {
-            case 2 -> new Vector2d(
-                    swizzle3Help(swizzlee, swizzler.charAt(0)),
-                    swizzle3Help(swizzlee, swizzler.charAt(1))
-            );
-            case 3 -> new Vector3d(
-                    swizzle3Help(swizzlee, swizzler.charAt(0)),
-                    swizzle3Help(swizzlee, swizzler.charAt(1)),
-                    swizzle3Help(swizzlee, swizzler.charAt(2))
-            );
-            case 4 -> new Vector4d(
-                    swizzle3Help(swizzlee, swizzler.charAt(0)),
-                    swizzle3Help(swizzlee, swizzler.charAt(1)),
-                    swizzle3Help(swizzlee, swizzler.charAt(2)),
-                    swizzle3Help(swizzlee, swizzler.charAt(3))
-            );
-            default -> throw new PetPetException("Invalid swizzle for vec3: " + swizzler + ", must be length 2 to 4");
-        };
-    }
-
-    private static double swizzle4Help(Vector4d swizzlee, char c) {
-        return switch (c) {
-            case 'x', 'r' -> swizzlee.x;
-            case 'y', 'g' -> swizzlee.y;
-            case 'z', 'b' -> swizzlee.z;
-            case 'w', 'a' -> swizzlee.w;
-            case '_' -> 0;
-            default -> throw new PetPetException("Invalid swizzle for vec4, unrecognized character '" + c + "'");
-        };
+        return Swizzle.get(swizzler, 3).apply(swizzlee);
     }
-
     public static Object swizzle4(Vector4d swizzlee, String swizzler) {
-        if (swizzler.equals("c")) //copy
-            return new Vector4d(swizzlee);
-        return switch (swizzler.length()) {
-            case 2 -> new Vector2d(
-                    swizzle4Help(swizzlee, swizzler.charAt(0)),
-                    swizzle4Help(swizzlee, swizzler.charAt(1))
-            );
-            case 3 -> new Vector3d(
-                    swizzle4Help(swizzlee, swizzler.charAt(0)),
-                    swizzle4Help(swizzlee, swizzler.charAt(1)),
-                    swizzle4Help(swizzlee, swizzler.charAt(2))
-            );
-            case 4 -> new Vector4d(
-                    swizzle4Help(swizzlee, swizzler.charAt(0)),
-                    swizzle4Help(swizzlee, swizzler.charAt(1)),
-                    swizzle4Help(swizzlee, swizzler.charAt(2)),
-                    swizzle4Help(swizzlee, swizzler.charAt(3))
-            );
-            default -> throw new PetPetException("Invalid swizzle for vec4: " + swizzler + ", must be length 2 to 4");
-        };
+        return Swizzle.get(swizzler, 4).apply(swizzlee);
+    }
+
+    //Swizzle setters write into the vector itself, like v.xz = vec2(1, 2) or v.xyz = 0
+    public static Object setSwizzle2(Vector2d swizzlee, String swizzler, Object value) {
+        Swizzle.get(swizzler, 2).assign(swizzlee, swizzler, value);
+        return value;
+    }
+    public static Object setSwizzle3(Vector3d swizzlee, String swizzler, Object value) {
+        Swizzle.get(swizzler, 3).assign(swizzlee, swizzler, value);
+        return value;
+    }
+    public static Object setSwizzle4(Vector4d swizzlee, String swizzler, Object value) {
+        Swizzle.get(swizzler, 4).assign(swizzlee, swizzler, value);
+        return value;
     }
 
 }
@@ -0,0 +1,86 @@
+package io.github.moonlightmaya.script.apis.nbt;
+
+import io.github.moonlightmaya.util.NbtUtils;
+import net.minecraft.nbt.AbstractNbtList;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import petpet.external.PetPetWhitelist;
+import petpet.types.PetPetList;
+import petpet.types.PetPetTable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only view of an NbtCompound for scripts. Nothing is converted up
+ * front; a field is converted the first time it's read (numbers to numbers,
+ * strings to strings, compounds and lists to more views) and remembered, so
+ * reading one field out of a large item or entity tag only pays for that field.
+ *
+ * The view reads from the compound it wraps, so it shouldn't be handed a
+ * compound that something else is still changing.
+ */
+@PetPetWhitelist
+public class NbtCompoundView {
+
+    private final NbtCompound compound;
+    private Map<String, Object> converted; //Created on the first read
+
+    public NbtCompoundView(NbtCompound compound) {
+        this.compound = compound;
+    }
+
+    /**
+     * Converts an element the way the views expose it
+     */
+    static Object convert(NbtElement element) {
+        if (element instanceof NbtCompound compound)
+            return new NbtCompoundView(compound);
+        if (element instanceof AbstractNbtList<?> list)
+            return new NbtListView(list);
+        return NbtUtils.toPetPet(element);
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public Object __get_str(String key) {
+        if (converted == null)
+            converted = new HashMap<>();
+        else if (converted.containsKey(key))
+            return converted.get(key);
+        Object value = convert(compound.get(key)); //Missing keys become nil, and are remembered as such
+        converted.put(key, value);
+        return value;
+    }
+
+    @PetPetWhitelist
+    public boolean has(String key) {
+        return compound.contains(key);
+    }
+
+    @PetPetWhitelist
+    public PetPetList<String> keys() {
+        PetPetList<String> result = new PetPetList<>(compound.getSize());
+        result.addAll(compound.getKeys());
+        return result;
+    }
+
+    @PetPetWhitelist
+    public double size() {
+        return compound.getSize();
+    }
+
+    /**
+     * Convert the whole compound into a regular table, all at once
+     */
+    @PetPetWhitelist
+    public PetPetTable<String, Object> toTable() {
+        return NbtUtils.toPetPet(compound);
+    }
+
+    @Override
+    public String toString() {
+        return compound.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.moonlightmaya.script.apis.nbt;
+
+import io.github.moonlightmaya.util.NbtUtils;
+import net.minecraft.nbt.AbstractNbtList;
+import petpet.external.PetPetWhitelist;
+import petpet.types.PetPetList;
+
+/**
+ * A read-only view of an NBT list (or byte/int/long array) for scripts,
+ * converting elements as they're read. See NbtCompoundView.
+ */
+@PetPetWhitelist
+public class NbtListView {
+
+    private final AbstractNbtList<?> list;
+    private Object[] converted; //Created on the first read
+    private boolean[] isConverted;
+
+    public NbtListView(AbstractNbtList<?> list) {
+        this.list = list;
+    }
+
+    //----------PETPET FUNCTIONS----------//
+
+    @PetPetWhitelist
+    public Object __get_num(int index) {
+        if (index < 0 || index >= list.size()) return null;
+        if (converted == null) {
+            converted = new Object[list.size()];
+            isConverted = new boolean[list.size()];
+        }
+        if (!isConverted[index]) {
+            converted[index] = NbtCompoundView.convert(list.get(index));
+            isConverted[index] = true;
+        }
+        return converted[index];
+    }
+
+    @PetPetWhitelist
+    public double size() {
+        return list.size();
+    }
+
+    /**
+     * Convert the whole list into a regular list, all at once
+     */
+    @SuppressWarnings("unchecked")
+    @PetPetWhitelist
+    public PetPetList<Object> toList() {
+        return (PetPetList<Object>) NbtUtils.toPetPet(list);
+    }
+
+    @Override
+    public String toString() {
+        return list.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.moonlightmaya.script.apis.world;
+
+import net.minecraft.block.Block;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.state.property.Property;
+import net.minecraft.util.Identifier;
+import petpet.types.PetPetList;
+import petpet.types.PetPetTable;
+import petpet.types.immutable.PetPetListView;
+import petpet.types.immutable.PetPetTableView;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The script-facing metadata of a block: its id, tags, and properties, already
+ * converted to strings, lists and tables. None of it depends on the particular
+ * state, so it's built once per Block, the first time a script asks, and every
+ * BlockState of that block (from every Aspect) shares it. The lists and tables
+ * are views, so scripts can't change the shared copies.
+ *
+ * Tags are sent by the server, and can change without the world changing, when
+ * it reloads its data packs. So the cache is cleared whenever the server syncs
+ * tags (see ClientPlayNetworkHandlerMixin), as well as when the world changes.
+ */
+public class BlockInfo {
+
+    private static final Map<Block, BlockInfo> BLOCKS = new ConcurrentHashMap<>();
+    private static final Map<Fluid, PetPetListView<String>> FLUID_TAGS = new ConcurrentHashMap<>();
+
+    public final String id;
+    public final PetPetListView<String> tags;
+    public final PetPetTableView<String, PetPetListView<String>> properties;
+
+    private BlockInfo(Block block) {
+        id = Registries.BLOCK.getId(block).toString().intern();
+        tags = tagList(block.getRegistryEntry().streamTags().map(TagKey::id));
+
+        PetPetTable<String, PetPetListView<String>> propertyTable = new PetPetTable<>();
+        for (Property<?> property : block.getStateManager().getProperties()) {
+            PetPetList<String> values = new PetPetList<>(property.getValues().size());
+            for (Object option : property.getValues())
+                values.add(option.toString());
+            propertyTable.put(property.getName(), new PetPetListView<>(values));
+        }
+        properties = new PetPetTableView<>(propertyTable);
+    }
+
+    private static PetPetListView<String> tagList(Stream<Identifier> ids) {
+        PetPetList<String> list = new PetPetList<>();
+        ids.map(Identifier::toString).map(String::intern).forEach(list::add);
+        return new PetPetListView<>(list);
+    }
+
+    public static BlockInfo get(Block block) {
+        return BLOCKS.computeIfAbsent(block, BlockInfo::new);
+    }
+
+    public static PetPetListView<String> getFluidTags(Fluid fluid) {
+        return FLUID_TAGS.computeIfAbsent(fluid, f -> tagList(f.getRegistryEntry().streamTags().map(TagKey::id)));
+    }
+
+    /**
+     * Forget everything, since tags may have changed
+     */
+    public static void clear() {
+        BLOCKS.clear();
+        FLUID_TAGS.clear();
+    }
+}
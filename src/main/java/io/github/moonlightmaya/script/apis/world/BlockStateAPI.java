@@ -1,18 +1,14 @@
 package io.github.moonlightmaya.script.apis.world;
 
+import io.github.moonlightmaya.script.apis.nbt.NbtCompoundView;
 import io.github.moonlightmaya.util.ItemUtils;
 import io.github.moonlightmaya.util.MathUtils;
-import io.github.moonlightmaya.util.NbtUtils;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.command.argument.BlockArgumentParser;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.registry.Registries;
-import net.minecraft.registry.tag.TagKey;
-import net.minecraft.state.property.Property;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.apache.commons.lang3.function.TriFunction;
@@ -21,10 +17,9 @@ import petpet.external.PetPetReflector;
 import petpet.external.PetPetWhitelist;
 import petpet.lang.run.JavaFunction;
 import petpet.lang.run.PetPetClass;
-import petpet.types.PetPetList;
-import petpet.types.PetPetTable;
+import petpet.types.immutable.PetPetListView;
+import petpet.types.immutable.PetPetTableView;
 
-import java.util.Collection;
 import java.util.function.Function;
 
 @PetPetWhitelist
@@ -33,16 +28,19 @@ public class BlockStateAPI {
 
     static {
         BLOCK_STATE_CLASS = PetPetReflector.reflect(BlockStateAPI.class, "BlockState");
+        //Swap the reflective bindings for the generated direct ones
+        BlockStateAPIInvokers.install(BLOCK_STATE_CLASS);
 
-        genWorldPosAcceptors("isTranslucent", BlockState::isTranslucent);
-        genWorldPosAcceptors("getOpacity", BlockState::getOpacity);
-        genWorldPosAcceptors("isSolidBlock", BlockState::isSolidBlock);
+        //These return immutable values, so their results can be shared through the WorldQueryCache
+        genCachedWorldPosAcceptors("isTranslucent", BlockState::isTranslucent);
+        genCachedWorldPosAcceptors("getOpacity", BlockState::getOpacity);
+        genCachedWorldPosAcceptors("isSolidBlock", BlockState::isSolidBlock);
 
-        genWorldPosAcceptors("isFullCube", BlockState::isFullCube);
-        genWorldPosAcceptors("hasEmissiveLighting", BlockState::hasEmissiveLighting);
-        genWorldPosAcceptors("getHardness", BlockState::getHardness);
-        genWorldPosAcceptors("getComparatorOutput", BlockState::getComparatorOutput);
-        genWorldPosAcceptors("getOcclusion", BlockState::getAmbientOcclusionLightLevel);
+        genCachedWorldPosAcceptors("isFullCube", BlockState::isFullCube);
+        genCachedWorldPosAcceptors("hasEmissiveLighting", BlockState::hasEmissiveLighting);
+        genCachedWorldPosAcceptors("getHardness", BlockState::getHardness);
+        genCachedWorldPosAcceptors("getComparatorOutput", BlockState::getComparatorOutput);
+        genCachedWorldPosAcceptors("getOcclusion", BlockState::getAmbientOcclusionLightLevel);
 
         genWorldPosAcceptors("toStateString", (state, world, pos) -> {
             BlockEntity be = world.getBlockEntity(pos);
@@ -50,10 +48,10 @@ public class BlockStateAPI {
         });
         genWorldPosAcceptors("getEntityData", (state, world, pos) -> {
             BlockEntity be = world.getBlockEntity(pos);
-            return NbtUtils.toPetPet(be == null ? new NbtCompound() : be.createNbt());
+            return new NbtCompoundView(be == null ? new NbtCompound() : be.createNbt());
         });
 
-        genWorldPosAcceptorsWithTransformer("hasCollision", BlockState::getCollisionShape, shape -> !shape.isEmpty());
+        genCachedWorldPosAcceptors("hasCollision", (state, world, pos) -> !state.getCollisionShape(world, pos).isEmpty());
         genWorldPosAcceptorsWithTransformer("getMapColor", BlockState::getMapColor, i -> MathUtils.intToRGBA(i.color));
     }
 
@@ -97,22 +95,20 @@ public class BlockStateAPI {
 
     // other
 
+    //The id, tags and properties only depend on the block, and are shared through BlockInfo
+
     @PetPetWhitelist
     public static String getID(BlockState state) {
-        return Registries.BLOCK.getId(state.getBlock()).toString();
+        return BlockInfo.get(state.getBlock()).id;
     }
 
     @PetPetWhitelist
-    public static PetPetList<String> getTags(BlockState state) {
-        PetPetList<String> list = new PetPetList<>();
-        state.streamTags().map(TagKey::id).map(Identifier::toString).forEach(list::add);
-        return list;
+    public static PetPetListView<String> getTags(BlockState state) {
+        return BlockInfo.get(state.getBlock()).tags;
     }
     @PetPetWhitelist
-    public static PetPetList<String> getFluidTags(BlockState state) {
-        PetPetList<String> list = new PetPetList<>();
-        state.getFluidState().streamTags().map(TagKey::id).map(Identifier::toString).forEach(list::add);
-        return list;
+    public static PetPetListView<String> getFluidTags(BlockState state) {
+        return BlockInfo.getFluidTags(state.getFluidState().getFluid());
     }
     @PetPetWhitelist
     public static ItemStack asItem(BlockState state) {
@@ -120,16 +116,8 @@ public class BlockStateAPI {
         return ItemUtils.checkStack(state.getBlock().asItem().getDefaultStack());
     }
     @PetPetWhitelist
-    public static PetPetTable<String, PetPetList<?>> getProperties(BlockState state) {
-        Collection<Property<?>> properties = state.getProperties();
-        PetPetTable<String, PetPetList<?>> result = new PetPetTable<>();
-        for (Property<?> property : properties) {
-            PetPetList<Object> list = new PetPetList<>(property.getValues().size());
-            for (Object option : property.getValues())
-                list.add(option.toString());
-            result.put(property.getName(), list);
-        }
-        return result;
+    public static PetPetTableView<String, PetPetListView<String>> getProperties(BlockState state) {
+        return BlockInfo.get(state.getBlock()).properties;
     }
 
 
@@ -144,37 +132,55 @@ public class BlockStateAPI {
      * 3 numbers instead of a vector.
      */
 
+    @FunctionalInterface
+    private interface WorldPosFunction {
+        Object apply(BlockState state, World world, double x, double y, double z);
+    }
+
     private static void genWorldPosAcceptors(String name, TriFunction<BlockState, World, BlockPos, ?> baseFunc) {
+        genAcceptors(name, (state, world, x, y, z) -> baseFunc.apply(state, world, new BlockPos(x, y, z)));
+    }
+
+    /**
+     * Same concept, but results are remembered for the rest of the tick. The
+     * position stays as numbers until the cache misses, so a hit never creates a BlockPos.
+     */
+    private static <T> void genCachedWorldPosAcceptors(String name, TriFunction<BlockState, World, BlockPos, T> baseFunc) {
+        WorldQueryCache.Property<T> property = WorldQueryCache.property();
+        genAcceptors(name, (state, world, x, y, z) -> property.get(state, world, x, y, z, baseFunc));
+    }
+
+    private static void genAcceptors(String name, WorldPosFunction func) {
         BLOCK_STATE_CLASS.addMethod(name + "_0", new JavaFunction(false, 1) {
             @Override
             public Object invoke(Object blockState) {
-                return baseFunc.apply((BlockState) blockState, MinecraftClient.getInstance().world, BlockPos.ORIGIN);
+                return func.apply((BlockState) blockState, MinecraftClient.getInstance().world, 0, 0, 0);
             }
         });
         BLOCK_STATE_CLASS.addMethod(name + "_1", new JavaFunction(false, 2) {
             @Override
             public Object invoke(Object blockState, Object pos) {
                 Vector3d p = (Vector3d) pos;
-                return baseFunc.apply((BlockState) blockState, MinecraftClient.getInstance().world, new BlockPos(p.x, p.y, p.z));
+                return func.apply((BlockState) blockState, MinecraftClient.getInstance().world, p.x, p.y, p.z);
             }
         });
         BLOCK_STATE_CLASS.addMethod(name + "_2", new JavaFunction(false, 3) {
             @Override
             public Object invoke(Object blockState, Object pos, Object world) {
                 Vector3d p = (Vector3d) pos;
-                return baseFunc.apply((BlockState) blockState, (World) world, new BlockPos(p.x, p.y, p.z));
+                return func.apply((BlockState) blockState, (World) world, p.x, p.y, p.z);
             }
         });
         BLOCK_STATE_CLASS.addMethod(name + "_3", new JavaFunction(false, 4) {
             @Override
             public Object invoke(Object blockState, Object x, Object y, Object z) {
-                return baseFunc.apply((BlockState) blockState, MinecraftClient.getInstance().world, new BlockPos((Double) x, (Double) y, (Double) z));
+                return func.apply((BlockState) blockState, MinecraftClient.getInstance().world, (Double) x, (Double) y, (Double) z);
             }
         });
         BLOCK_STATE_CLASS.addMethod(name + "_4", new JavaFunction(false, 5) {
             @Override
             public Object invoke(Object blockState, Object x, Object y, Object z, Object world) {
-                return baseFunc.apply((BlockState) blockState, (World) world, new BlockPos((Double) x, (Double) y, (Double) z));
+                return func.apply((BlockState) blockState, (World) world, (Double) x, (Double) y, (Double) z);
             }
         });
     }
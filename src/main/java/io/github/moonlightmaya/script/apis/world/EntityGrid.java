@@ -0,0 +1,194 @@
+package io.github.moonlightmaya.script.apis.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+import org.jetbrains.annotations.Nullable;
+import petpet.lang.run.PetPetException;
+import petpet.types.PetPetList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A grid of the world's entities, bucketed into 16 block cells, for the
+ * spatial entity queries in WorldAPI. It's shared by every Aspect, and built
+ * at most once per tick: the first query after AspectManager invalidates it
+ * rebuilds it, so ticks where no script asks for entities cost nothing.
+ *
+ * Entities are bucketed by their position (not their bounding box), as of the
+ * time the grid was built. Queries check the entity's current position, so an
+ * entity which moved across a cell edge since the build may be missed until the
+ * next tick.
+ */
+public class EntityGrid {
+
+    private static final int CELL_BITS = 4;
+
+    //Lists are kept for occupied cells between builds, so a rebuild mostly doesn't allocate
+    private static final Long2ObjectOpenHashMap<List<Entity>> CELLS = new Long2ObjectOpenHashMap<>();
+    private static ClientWorld builtWorld;
+    private static boolean stale = true;
+
+    //Instrumentation for the builds
+    private static long builds, totalBuildNanos, lastBuildNanos, maxBuildNanos;
+    private static int lastEntityCount;
+
+    /**
+     * Marks the grid as out of date. Called at the start of each tick, on the client thread.
+     */
+    public static synchronized void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Drops the grid and the world it was built for, so neither is kept alive
+     * after leaving the world. Called by AspectManager when the world changes
+     * or the client disconnects.
+     */
+    public static synchronized void clear() {
+        CELLS.clear();
+        CELLS.trim();
+        builtWorld = null;
+        stale = true;
+    }
+
+    /**
+     * Rebuilds the grid if needed. Synchronized, since scripts may be
+     * ticking on several worker threads at once; whichever gets here
+     * first does the build and the rest wait for it.
+     */
+    private static synchronized void ensureBuilt(ClientWorld world) {
+        if (!stale && world == builtWorld) return;
+        long start = System.nanoTime();
+
+        if (world != builtWorld)
+            CELLS.clear();
+        else
+            for (List<Entity> cell : CELLS.values())
+                cell.clear();
+
+        int count = 0;
+        for (Entity entity : world.getEntities()) {
+            long key = cellKey(MathHelper.floor(entity.getX()) >> CELL_BITS, MathHelper.floor(entity.getY()) >> CELL_BITS, MathHelper.floor(entity.getZ()) >> CELL_BITS);
+            List<Entity> cell = CELLS.get(key);
+            if (cell == null)
+                CELLS.put(key, cell = new ArrayList<>());
+            cell.add(entity);
+            count++;
+        }
+
+        //Drop cells nobody is in anymore
+        ObjectIterator<Long2ObjectMap.Entry<List<Entity>>> iterator = CELLS.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext())
+            if (iterator.next().getValue().isEmpty())
+                iterator.remove();
+
+        builtWorld = world;
+        stale = false;
+
+        long nanos = System.nanoTime() - start;
+        builds++;
+        totalBuildNanos += nanos;
+        lastBuildNanos = nanos;
+        maxBuildNanos = Math.max(maxBuildNanos, nanos);
+        lastEntityCount = count;
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ChunkSectionPos.asLong(x, y, z);
+    }
+
+    @Nullable
+    static EntityType<?> parseType(@Nullable String typeId) {
+        if (typeId == null) return null;
+        Identifier id = Identifier.tryParse(typeId);
+        if (id == null)
+            throw new PetPetException("Invalid entity type \"" + typeId + "\"");
+        return Registries.ENTITY_TYPE.getOrEmpty(id).orElseThrow(() -> new PetPetException("Unknown entity type \"" + typeId + "\""));
+    }
+
+    @FunctionalInterface
+    interface EntityVisitor {
+        void visit(Entity entity);
+    }
+
+    /**
+     * Visits every entity whose cell overlaps the box, of the given type if it isn't null.
+     * The caller still needs to check the entity's position against the box itself.
+     */
+    static void visitCells(ClientWorld world, double minX, double minY, double minZ, double maxX, double maxY, double maxZ, @Nullable EntityType<?> type, EntityVisitor visitor) {
+        ensureBuilt(world);
+        int x0 = MathHelper.floor(minX) >> CELL_BITS, x1 = MathHelper.floor(maxX) >> CELL_BITS;
+        int y0 = MathHelper.floor(minY) >> CELL_BITS, y1 = MathHelper.floor(maxY) >> CELL_BITS;
+        int z0 = MathHelper.floor(minZ) >> CELL_BITS, z1 = MathHelper.floor(maxZ) >> CELL_BITS;
+        double cellsInBox = (double) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        if (cellsInBox > CELLS.size()) {
+            //A huge box; cheaper to go over the occupied cells than every cell in the box
+            for (List<Entity> cell : CELLS.values())
+                visitList(cell, type, visitor);
+            return;
+        }
+        for (int x = x0; x <= x1; x++)
+            for (int y = y0; y <= y1; y++)
+                for (int z = z0; z <= z1; z++) {
+                    List<Entity> cell = CELLS.get(cellKey(x, y, z));
+                    if (cell != null)
+                        visitList(cell, type, visitor);
+                }
+    }
+
+    private static void visitList(List<Entity> cell, @Nullable EntityType<?> type, EntityVisitor visitor) {
+        for (Entity entity : cell)
+            if (!entity.isRemoved() && (type == null || entity.getType() == type))
+                visitor.visit(entity);
+    }
+
+    static PetPetList<Entity> inBox(ClientWorld world, double minX, double minY, double minZ, double maxX, double maxY, double maxZ, @Nullable EntityType<?> type) {
+        PetPetList<Entity> result = new PetPetList<>();
+        visitCells(world, minX, minY, minZ, maxX, maxY, maxZ, type, entity -> {
+            double x = entity.getX(), y = entity.getY(), z = entity.getZ();
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ)
+                result.add(entity);
+        });
+        return result;
+    }
+
+    static PetPetList<Entity> inRadius(ClientWorld world, double x, double y, double z, double radius, @Nullable EntityType<?> type) {
+        PetPetList<Entity> result = new PetPetList<>();
+        double radiusSquared = radius * radius;
+        visitCells(world, x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, type, entity -> {
+            if (entity.squaredDistanceTo(x, y, z) <= radiusSquared)
+                result.add(entity);
+        });
+        return result;
+    }
+
+    @Nullable
+    static Entity nearest(ClientWorld world, double x, double y, double z, double radius, @Nullable EntityType<?> type, @Nullable Entity exclude) {
+        Entity[] best = new Entity[1];
+        double[] bestDistance = {radius * radius};
+        visitCells(world, x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, type, entity -> {
+            if (entity == exclude) return;
+            double distance = entity.squaredDistanceTo(x, y, z);
+            if (distance <= bestDistance[0]) {
+                bestDistance[0] = distance;
+                best[0] = entity;
+            }
+        });
+        return best[0];
+    }
+
+    public static synchronized String describe() {
+        return String.format("%d builds, last %.3f ms for %d entities in %d cells, avg %.3f ms, max %.3f ms",
+                builds, lastBuildNanos / 1e6, lastEntityCount, CELLS.size(),
+                builds == 0 ? 0 : totalBuildNanos / 1e6 / builds, maxBuildNanos / 1e6);
+    }
+}
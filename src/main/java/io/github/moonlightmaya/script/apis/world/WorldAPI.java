@@ -1,22 +1,32 @@
 package io.github.moonlightmaya.script.apis.world;
 
 import io.github.moonlightmaya.util.EntityUtils;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.LightType;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
 import net.minecraft.world.dimension.DimensionType;
 import org.joml.Vector3d;
 import petpet.external.PetPetReflector;
 import petpet.external.PetPetWhitelist;
 import petpet.lang.run.*;
 import petpet.types.PetPetList;
+import petpet.types.PetPetTable;
 
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 @PetPetWhitelist
 public class WorldAPI {
@@ -26,6 +36,8 @@ public class WorldAPI {
     static {
         //Custom methods, inside the WorldAPI class
         WORLD_CLASS = PetPetReflector.reflect(WorldAPI.class, "World");
+        //Swap the reflective bindings for the generated direct ones
+        WorldAPIInvokers.install(WORLD_CLASS);
 
         ((JavaFunction) WORLD_CLASS.methods.get("eachBlock_3")).costPenalizer = i -> {
             Vector3d max = (Vector3d) i.peek(1);
@@ -45,6 +57,35 @@ public class WorldAPI {
             double minX = Math.floor((Double) i.peek(6));
             return (int) (Math.abs(maxZ - minZ) * Math.abs(maxY - minY) * Math.abs(maxX - minX));
         };
+
+        //Region queries read natively without calling back into the script, so they cost less per block than eachBlock
+        ((JavaFunction) WORLD_CLASS.methods.get("getRegion_2")).costPenalizer = i -> regionCost((Vector3d) i.peek(1), (Vector3d) i.peek(0));
+        ((JavaFunction) WORLD_CLASS.methods.get("getRegion_6")).costPenalizer = i -> regionCost(
+                (Double) i.peek(5), (Double) i.peek(4), (Double) i.peek(3),
+                (Double) i.peek(2), (Double) i.peek(1), (Double) i.peek(0)
+        );
+        ((JavaFunction) WORLD_CLASS.methods.get("findBlocks_3")).costPenalizer = i -> regionCost((Vector3d) i.peek(2), (Vector3d) i.peek(1));
+        ((JavaFunction) WORLD_CLASS.methods.get("findBlocks_7")).costPenalizer = i -> regionCost(
+                (Double) i.peek(6), (Double) i.peek(5), (Double) i.peek(4),
+                (Double) i.peek(3), (Double) i.peek(2), (Double) i.peek(1)
+        );
+    }
+
+    /**
+     * The largest region a single query may read, 128 x 128 x 128 blocks
+     */
+    private static final int MAX_REGION_VOLUME = 1 << 21;
+
+    private static int regionCost(Vector3d min, Vector3d max) {
+        return regionCost(min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+
+    private static int regionCost(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        //The cost is only an estimate of the work, so clamp rather than overflow
+        double volume = (Math.abs(Math.floor(maxX) - Math.floor(minX)) + 1) *
+                (Math.abs(Math.floor(maxY) - Math.floor(minY)) + 1) *
+                (Math.abs(Math.floor(maxZ) - Math.floor(minZ)) + 1);
+        return (int) Math.min(volume / 16, Integer.MAX_VALUE);
     }
 
     private static <T> T acceptPosOrElse(ClientWorld world, double x, double y, double z, Function<BlockPos, T> ifLoaded, T ifUnloaded) {
@@ -94,6 +135,46 @@ public class WorldAPI {
         return entities;
     }
     @PetPetWhitelist
+    public static PetPetList<Entity> getEntitiesInBox_2(ClientWorld world, Vector3d min, Vector3d max) {
+        return getEntitiesInBox_3(world, min, max, null);
+    }
+    /**
+     * Entities whose position is inside the box, optionally only those of the given type id.
+     * This and the other spatial queries below share one EntityGrid, rebuilt once per tick,
+     * rather than going over every entity in the world each call.
+     */
+    @PetPetWhitelist
+    public static PetPetList<Entity> getEntitiesInBox_3(ClientWorld world, Vector3d min, Vector3d max, String type) {
+        return EntityGrid.inBox(world,
+                Math.min(min.x, max.x), Math.min(min.y, max.y), Math.min(min.z, max.z),
+                Math.max(min.x, max.x), Math.max(min.y, max.y), Math.max(min.z, max.z),
+                EntityGrid.parseType(type));
+    }
+    @PetPetWhitelist
+    public static PetPetList<Entity> getEntitiesInRadius_2(ClientWorld world, Vector3d center, double radius) {
+        return getEntitiesInRadius_3(world, center, radius, null);
+    }
+    @PetPetWhitelist
+    public static PetPetList<Entity> getEntitiesInRadius_3(ClientWorld world, Vector3d center, double radius, String type) {
+        return EntityGrid.inRadius(world, center.x, center.y, center.z, radius, EntityGrid.parseType(type));
+    }
+    @PetPetWhitelist
+    public static Entity getNearest_2(ClientWorld world, Vector3d pos, double radius) {
+        return getNearest_4(world, pos, radius, null, null);
+    }
+    @PetPetWhitelist
+    public static Entity getNearest_3(ClientWorld world, Vector3d pos, double radius, String type) {
+        return getNearest_4(world, pos, radius, type, null);
+    }
+    /**
+     * The nearest entity within the radius, of the type if it isn't nil, that isn't the excluded entity.
+     * Excluding is for finding the nearest entity to the user, other than the user themself.
+     */
+    @PetPetWhitelist
+    public static Entity getNearest_4(ClientWorld world, Vector3d pos, double radius, String type, Entity exclude) {
+        return EntityGrid.nearest(world, pos.x, pos.y, pos.z, radius, EntityGrid.parseType(type), exclude);
+    }
+    @PetPetWhitelist
     public static Entity getEntity(ClientWorld world, String uuid) {
         return EntityUtils.getEntityByUUID(world, UUID.fromString(uuid));
     }
@@ -115,27 +196,31 @@ public class WorldAPI {
     }
     @PetPetWhitelist
     public static Biome getBiome_1(ClientWorld world, Vector3d pos) {
-        return world.getBiome(new BlockPos(pos.x, pos.y, pos.z)).value();
+        return WorldQueryCache.getBiome(world, pos.x, pos.y, pos.z).value();
     }
     @PetPetWhitelist
     public static Biome getBiome_3(ClientWorld world, double x, double y, double z) {
-        return world.getBiome(new BlockPos(x, y, z)).value();
+        return WorldQueryCache.getBiome(world, x, y, z).value();
     }
     @PetPetWhitelist
     public static String getBiomeID_1(ClientWorld world, Vector3d pos) {
-        return world.getBiome(new BlockPos(pos.x, pos.y, pos.z)).getKey().map(k -> k.getValue().toString()).orElse(null);
+        return WorldQueryCache.getBiome(world, pos.x, pos.y, pos.z).getKey().map(k -> k.getValue().toString()).orElse(null);
     }
     @PetPetWhitelist
     public static String getBiomeID_3(ClientWorld world, double x, double y, double z) {
-        return world.getBiome(new BlockPos(x, y, z)).getKey().map(k -> k.getValue().toString()).orElse(null);
+        return WorldQueryCache.getBiome(world, x, y, z).getKey().map(k -> k.getValue().toString()).orElse(null);
     }
+    /**
+     * Block states, biomes and light levels go through the WorldQueryCache,
+     * so repeat queries within a tick, from any Aspect, are hash lookups.
+     */
     @PetPetWhitelist
     public static BlockState getBlockState_1(ClientWorld world, Vector3d pos) {
-        return acceptPosOrElse(world, pos.x, pos.y, pos.z, world::getBlockState, Blocks.AIR.getDefaultState());
+        return WorldQueryCache.getBlockState(world, pos.x, pos.y, pos.z);
     }
     @PetPetWhitelist
     public static BlockState getBlockState_3(ClientWorld world, double x, double y, double z) {
-        return acceptPosOrElse(world, x, y, z, world::getBlockState, Blocks.AIR.getDefaultState());
+        return WorldQueryCache.getBlockState(world, x, y, z);
     }
     @PetPetWhitelist
     public static void eachBlock_3(ClientWorld world, Vector3d min, Vector3d max, PetPetCallable func) {
@@ -153,29 +238,180 @@ public class WorldAPI {
         //Otherwise, call the function on each block in range
         BlockPos.stream(a, b).forEachOrdered(blockPos -> func.call(world.getBlockState(blockPos), blockPos.getX(), blockPos.getY(), blockPos.getZ()));
     }
+
+    @FunctionalInterface
+    private interface BlockVisitor {
+        void visit(BlockState state, int x, int y, int z);
+    }
+
+    /**
+     * Visits every block in the region by reading the chunk sections directly,
+     * rather than going through world.getBlockState() and a BlockPos per block.
+     * Blocks are visited a section at a time, not in xyz order.
+     * Sections the filter rejects are skipped entirely. Returns false, visiting
+     * nothing, if any part of the region is unloaded.
+     */
+    private static boolean visitRegion(ClientWorld world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Predicate<ChunkSection> sectionFilter, BlockVisitor visitor) {
+        if (!world.isRegionLoaded(minX, minY, minZ, maxX, maxY, maxZ))
+            return false;
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                WorldChunk chunk = world.getChunk(cx, cz);
+                ChunkSection[] sections = chunk.getSectionArray();
+                int x0 = Math.max(minX, cx << 4), x1 = Math.min(maxX, (cx << 4) + 15);
+                int z0 = Math.max(minZ, cz << 4), z1 = Math.min(maxZ, (cz << 4) + 15);
+                for (int cy = minY >> 4; cy <= maxY >> 4; cy++) {
+                    int y0 = Math.max(minY, cy << 4), y1 = Math.min(maxY, (cy << 4) + 15);
+                    int sectionIndex = world.sectionCoordToIndex(cy);
+                    if (sectionIndex < 0 || sectionIndex >= sections.length) {
+                        //Outside the build height, void air like world.getBlockState() gives. The filter sees a null section.
+                        if (!sectionFilter.test(null)) continue;
+                        BlockState voidAir = Blocks.VOID_AIR.getDefaultState();
+                        for (int y = y0; y <= y1; y++)
+                            for (int z = z0; z <= z1; z++)
+                                for (int x = x0; x <= x1; x++)
+                                    visitor.visit(voidAir, x, y, z);
+                        continue;
+                    }
+                    ChunkSection section = sections[sectionIndex];
+                    if (!sectionFilter.test(section)) continue;
+                    for (int y = y0; y <= y1; y++)
+                        for (int z = z0; z <= z1; z++)
+                            for (int x = x0; x <= x1; x++)
+                                visitor.visit(section.getBlockState(x & 15, y & 15, z & 15), x, y, z);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long checkRegionVolume(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (volume > MAX_REGION_VOLUME)
+            throw new PetPetException("Region of " + volume + " blocks is too large, the limit is " + MAX_REGION_VOLUME);
+        return volume;
+    }
+
+    /**
+     * Parses "minecraft:stone" into a test for that block, or "#minecraft:logs" into a test for that tag
+     */
+    private static Predicate<BlockState> parseBlockMatcher(String idOrTag) {
+        boolean isTag = idOrTag.startsWith("#");
+        Identifier id = Identifier.tryParse(isTag ? idOrTag.substring(1) : idOrTag);
+        if (id == null)
+            throw new PetPetException("Invalid block id or tag \"" + idOrTag + "\"");
+        if (isTag) {
+            TagKey<Block> tag = TagKey.of(RegistryKeys.BLOCK, id);
+            return state -> state.isIn(tag);
+        }
+        Block block = Registries.BLOCK.getOrEmpty(id).orElseThrow(() -> new PetPetException("Unknown block \"" + idOrTag + "\""));
+        return state -> state.isOf(block);
+    }
+
+    @PetPetWhitelist
+    public static PetPetTable<String, Object> getRegion_2(ClientWorld world, Vector3d min, Vector3d max) {
+        return getRegion_6(world, min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+    /**
+     * Reads every block in the region at once. Returns a table with a "palette"
+     * list of the distinct BlockStates found, a "blocks" list holding each block's
+     * index into the palette, and the region's "size" and "min" corner.
+     * The index of the block at (x, y, z) in "blocks" is
+     * ((y - min.y) * size.z + (z - min.z)) * size.x + (x - min.x).
+     * Returns nil if any part of the region is unloaded.
+     */
+    @PetPetWhitelist
+    public static PetPetTable<String, Object> getRegion_6(ClientWorld world, double x1, double y1, double z1, double x2, double y2, double z2) {
+        int minX = MathHelper.floor(Math.min(x1, x2)), maxX = MathHelper.floor(Math.max(x1, x2));
+        int minY = MathHelper.floor(Math.min(y1, y2)), maxY = MathHelper.floor(Math.max(y1, y2));
+        int minZ = MathHelper.floor(Math.min(z1, z2)), maxZ = MathHelper.floor(Math.max(z1, z2));
+        int volume = (int) checkRegionVolume(minX, minY, minZ, maxX, maxY, maxZ);
+        int sizeX = maxX - minX + 1, sizeZ = maxZ - minZ + 1;
+
+        PetPetList<BlockState> palette = new PetPetList<>();
+        Reference2IntOpenHashMap<BlockState> paletteIndices = new Reference2IntOpenHashMap<>();
+        paletteIndices.defaultReturnValue(-1);
+        int[] indices = new int[volume];
+        boolean loaded = visitRegion(world, minX, minY, minZ, maxX, maxY, maxZ, section -> true, (state, x, y, z) -> {
+            int paletteIndex = paletteIndices.getInt(state);
+            if (paletteIndex == -1) {
+                paletteIndex = palette.size();
+                paletteIndices.put(state, paletteIndex);
+                palette.add(state);
+            }
+            indices[((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)] = paletteIndex;
+        });
+        if (!loaded) return null;
+
+        //Share one boxed number per palette entry, rather than boxing each block
+        Double[] boxed = new Double[palette.size()];
+        for (int i = 0; i < boxed.length; i++)
+            boxed[i] = (double) i;
+        PetPetList<Double> blocks = new PetPetList<>(volume);
+        for (int index : indices)
+            blocks.add(boxed[index]);
+
+        PetPetTable<String, Object> result = new PetPetTable<>(4);
+        result.put("palette", palette);
+        result.put("blocks", blocks);
+        result.put("size", new Vector3d(sizeX, maxY - minY + 1, sizeZ));
+        result.put("min", new Vector3d(minX, minY, minZ));
+        return result;
+    }
+    @PetPetWhitelist
+    public static PetPetList<Double> findBlocks_3(ClientWorld world, Vector3d min, Vector3d max, String idOrTag) {
+        return findBlocks_7(world, min.x, min.y, min.z, max.x, max.y, max.z, idOrTag);
+    }
+    /**
+     * Finds every block in the region matching the id, or the tag if it starts with #.
+     * Returns the positions packed into one list, as x1, y1, z1, x2, y2, z2, and so on.
+     * Sections with no matching block in their palette are skipped without reading them.
+     * Returns nil if any part of the region is unloaded.
+     */
+    @PetPetWhitelist
+    public static PetPetList<Double> findBlocks_7(ClientWorld world, double x1, double y1, double z1, double x2, double y2, double z2, String idOrTag) {
+        int minX = MathHelper.floor(Math.min(x1, x2)), maxX = MathHelper.floor(Math.max(x1, x2));
+        int minY = MathHelper.floor(Math.min(y1, y2)), maxY = MathHelper.floor(Math.max(y1, y2));
+        int minZ = MathHelper.floor(Math.min(z1, z2)), maxZ = MathHelper.floor(Math.max(z1, z2));
+        checkRegionVolume(minX, minY, minZ, maxX, maxY, maxZ);
+        Predicate<BlockState> matcher = parseBlockMatcher(idOrTag);
+        boolean matchesVoid = matcher.test(Blocks.VOID_AIR.getDefaultState());
+
+        PetPetList<Double> positions = new PetPetList<>();
+        boolean loaded = visitRegion(world, minX, minY, minZ, maxX, maxY, maxZ,
+                section -> section == null ? matchesVoid : section.hasAny(matcher),
+                (state, x, y, z) -> {
+                    if (matcher.test(state)) {
+                        positions.add((double) x);
+                        positions.add((double) y);
+                        positions.add((double) z);
+                    }
+                });
+        return loaded ? positions : null;
+    }
     @PetPetWhitelist
     public static Integer getLight_1(ClientWorld world, Vector3d pos) {
-        return acceptPosOrElse(world, pos.x, pos.y, pos.z, world::getLightLevel, null);
+        return WorldQueryCache.getLight(world, pos.x, pos.y, pos.z);
     }
     @PetPetWhitelist
     public static Integer getLight_3(ClientWorld world, double x, double y, double z) {
-        return acceptPosOrElse(world, x, y, z, world::getLightLevel, null);
+        return WorldQueryCache.getLight(world, x, y, z);
     }
     @PetPetWhitelist
     public static Integer getBlockLight_1(ClientWorld world, Vector3d pos) {
-        return acceptPosOrElse(world, pos.x, pos.y, pos.z, p -> world.getLightLevel(LightType.BLOCK, p), null);
+        return WorldQueryCache.getBlockLight(world, pos.x, pos.y, pos.z);
     }
     @PetPetWhitelist
     public static Integer getBlockLight_3(ClientWorld world, double x, double y, double z) {
-        return acceptPosOrElse(world, x, y, z, p -> world.getLightLevel(LightType.BLOCK, p), null);
+        return WorldQueryCache.getBlockLight(world, x, y, z);
     }
     @PetPetWhitelist
     public static Integer getSkyLight_1(ClientWorld world, Vector3d pos) {
-        return acceptPosOrElse(world, pos.x, pos.y, pos.z, p -> world.getLightLevel(LightType.SKY, p), null);
+        return WorldQueryCache.getSkyLight(world, pos.x, pos.y, pos.z);
     }
     @PetPetWhitelist
     public static Integer getSkyLight_3(ClientWorld world, double x, double y, double z) {
-        return acceptPosOrElse(world, x, y, z, p -> world.getLightLevel(LightType.SKY, p), null);
+        return WorldQueryCache.getSkyLight(world, x, y, z);
     }
     @PetPetWhitelist
     public static double getRainGradient_0(ClientWorld world) {
@@ -0,0 +1,261 @@
+package io.github.moonlightmaya.script.apis.world;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.LightType;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import org.apache.commons.lang3.function.TriFunction;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the answers to world queries for the rest of the tick. Many
+ * scripts ask about the blocks, biomes and light around the same few players
+ * each tick; after the first one asks, the rest get a hash hit instead of a
+ * chunk lookup and a new BlockPos.
+ *
+ * Keys are positions packed into a long, in primitive maps, so a hit allocates
+ * nothing. Everything is dropped at the start of each tick by AspectManager, and
+ * whenever a query comes from a different world. Blocks may still change between
+ * a tick and the frames rendered after it, so a render-time query can see a
+ * value up to one tick old.
+ *
+ * Each thread has its own maps. With parallel ticking, every worker would
+ * otherwise queue on one lock for every query, which undoes the point of
+ * ticking in parallel. The cost is that Aspects on different workers don't
+ * share their answers. Invalidating just bumps a generation number, and each
+ * thread clears its own maps the next time it queries.
+ *
+ * A worker may not query again for a long time, so the maps mustn't be what
+ * keeps an old world alive: each thread only holds its world weakly, and
+ * clear() empties every thread's maps when the world changes or the client
+ * disconnects.
+ */
+public class WorldQueryCache {
+
+    private static final int TRIM_SIZE = 4096;
+    private static final int UNLOADED = -1;
+
+    //Only written by invalidate(), on the client thread
+    private static volatile long generation;
+
+    private static final ThreadLocal<Local> LOCAL = ThreadLocal.withInitial(WorldQueryCache::newLocal);
+    //Every thread's Local, so clear() can reach them. Only the client thread and the tick workers query, so this stays small
+    private static final List<Local> ALL_LOCALS = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger PROPERTY_COUNT = new AtomicInteger();
+
+    private static final Stats BLOCK_STATE_STATS = new Stats(), BIOME_STATS = new Stats(), LIGHT_STATS = new Stats(), PROPERTY_STATS = new Stats();
+
+    private static class Stats {
+        final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+        @Override
+        public String toString() {
+            long hits = this.hits.sum(), total = hits + misses.sum();
+            return String.format("%d/%d hits (%.1f%%)", hits, total, total == 0 ? 0 : 100.0 * hits / total);
+        }
+    }
+
+    /**
+     * One thread's cached answers, for one world and one generation
+     */
+    private static class Local {
+        long generation = -1;
+        WeakReference<ClientWorld> world = new WeakReference<>(null);
+        final Long2ObjectOpenHashMap<BlockState> blockStates = new Long2ObjectOpenHashMap<>();
+        final Long2ObjectOpenHashMap<RegistryEntry<Biome>> biomes = new Long2ObjectOpenHashMap<>();
+        //Light levels packed as combined << 8 | block << 4 | sky, or UNLOADED
+        final Long2IntOpenHashMap light = new Long2IntOpenHashMap();
+        //By Property index
+        final List<Long2ObjectOpenHashMap<?>> properties = new ArrayList<>();
+
+        void reset() {
+            clear(blockStates);
+            clear(biomes);
+            clear(light);
+            for (Long2ObjectOpenHashMap<?> values : properties)
+                clear(values);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> Long2ObjectOpenHashMap<T> property(int index) {
+            while (properties.size() <= index)
+                properties.add(new Long2ObjectOpenHashMap<>());
+            return (Long2ObjectOpenHashMap<T>) properties.get(index);
+        }
+    }
+
+    private static Local newLocal() {
+        Local local = new Local();
+        ALL_LOCALS.add(local);
+        return local;
+    }
+
+    /**
+     * Drops everything cached, on every thread. Called at the start of each tick, on the client thread.
+     */
+    public static void invalidate() {
+        generation++;
+    }
+
+    /**
+     * Empties every thread's maps and forgets their worlds, so nothing cached
+     * outlives the world it came from. Called by AspectManager on the client
+     * thread when the world changes or the client disconnects. No scripts are
+     * ticking then, so the workers aren't touching their maps; they next see
+     * them after the following tick's tasks are submitted.
+     */
+    public static void clear() {
+        generation++;
+        for (Local local : ALL_LOCALS) {
+            local.reset();
+            local.world.clear();
+        }
+    }
+
+    //This thread's maps, cleared first if they're from an older tick or a different world
+    private static Local local(ClientWorld world) {
+        Local local = LOCAL.get();
+        long current = generation;
+        if (local.generation != current || local.world.get() != world) {
+            local.reset();
+            local.generation = current;
+            local.world = new WeakReference<>(world);
+        }
+        return local;
+    }
+
+    //Clearing a fastutil map keeps its capacity, so shrink it after an unusually busy tick
+    private static void clear(Long2ObjectOpenHashMap<?> map) {
+        boolean large = map.size() > TRIM_SIZE;
+        map.clear();
+        if (large) map.trim();
+    }
+
+    private static void clear(Long2IntOpenHashMap map) {
+        boolean large = map.size() > TRIM_SIZE;
+        map.clear();
+        if (large) map.trim();
+    }
+
+    static long key(double x, double y, double z) {
+        return BlockPos.asLong(MathHelper.floor(x), MathHelper.floor(y), MathHelper.floor(z));
+    }
+
+    static BlockState getBlockState(ClientWorld world, double x, double y, double z) {
+        Long2ObjectOpenHashMap<BlockState> blockStates = local(world).blockStates;
+        long key = key(x, y, z);
+        BlockState state = blockStates.get(key);
+        if (state != null) {
+            BLOCK_STATE_STATS.hits.increment();
+            return state;
+        }
+        BLOCK_STATE_STATS.misses.increment();
+        BlockPos pos = BlockPos.fromLong(key);
+        state = world.getChunk(pos) == null ? Blocks.AIR.getDefaultState() : world.getBlockState(pos);
+        blockStates.put(key, state);
+        return state;
+    }
+
+    static RegistryEntry<Biome> getBiome(ClientWorld world, double x, double y, double z) {
+        Long2ObjectOpenHashMap<RegistryEntry<Biome>> biomes = local(world).biomes;
+        long key = key(x, y, z);
+        RegistryEntry<Biome> biome = biomes.get(key);
+        if (biome != null) {
+            BIOME_STATS.hits.increment();
+            return biome;
+        }
+        BIOME_STATS.misses.increment();
+        biome = world.getBiome(BlockPos.fromLong(key));
+        biomes.put(key, biome);
+        return biome;
+    }
+
+    private static int getPackedLight(ClientWorld world, double x, double y, double z) {
+        Long2IntOpenHashMap light = local(world).light;
+        long key = key(x, y, z);
+        if (light.containsKey(key)) {
+            LIGHT_STATS.hits.increment();
+            return light.get(key);
+        }
+        LIGHT_STATS.misses.increment();
+        BlockPos pos = BlockPos.fromLong(key);
+        int packed = world.getChunk(pos) == null ? UNLOADED :
+                world.getLightLevel(pos) << 8 | world.getLightLevel(LightType.BLOCK, pos) << 4 | world.getLightLevel(LightType.SKY, pos);
+        light.put(key, packed);
+        return packed;
+    }
+
+    //The light getters return null for unloaded positions, like WorldAPI always has
+
+    static Integer getLight(ClientWorld world, double x, double y, double z) {
+        int packed = getPackedLight(world, x, y, z);
+        return packed == UNLOADED ? null : packed >> 8;
+    }
+
+    static Integer getBlockLight(ClientWorld world, double x, double y, double z) {
+        int packed = getPackedLight(world, x, y, z);
+        return packed == UNLOADED ? null : packed >> 4 & 0xF;
+    }
+
+    static Integer getSkyLight(ClientWorld world, double x, double y, double z) {
+        int packed = getPackedLight(world, x, y, z);
+        return packed == UNLOADED ? null : packed & 0xF;
+    }
+
+    /**
+     * Creates a cache for a position dependent property of BlockStates, like its opacity.
+     * Only use it for properties that return immutable values, since the same
+     * object is handed to every script that asks.
+     */
+    static <T> Property<T> property() {
+        return new Property<>(PROPERTY_COUNT.getAndIncrement());
+    }
+
+    /**
+     * A cached BlockState property. The entry remembers which state it was
+     * computed for, so asking about a different state at the same position
+     * (or a state that has since changed) just computes it again.
+     */
+    static class Property<T> {
+        private record Entry<T>(BlockState state, T value) {}
+
+        private final int index; //Of this property's map in each thread's Local
+
+        private Property(int index) {
+            this.index = index;
+        }
+
+        T get(BlockState state, World world, double x, double y, double z, TriFunction<BlockState, World, BlockPos, T> compute) {
+            if (!(world instanceof ClientWorld clientWorld))
+                return compute.apply(state, world, new BlockPos(x, y, z)); //Not a client world, don't cache
+            Long2ObjectOpenHashMap<Entry<T>> values = local(clientWorld).property(index);
+            long key = key(x, y, z);
+            Entry<T> entry = values.get(key);
+            if (entry != null && entry.state == state) {
+                PROPERTY_STATS.hits.increment();
+                return entry.value;
+            }
+            PROPERTY_STATS.misses.increment();
+            T value = compute.apply(state, world, BlockPos.fromLong(key));
+            values.put(key, new Entry<>(state, value));
+            return value;
+        }
+    }
+
+    public static String describe() {
+        return "block states " + BLOCK_STATE_STATS + ", biomes " + BIOME_STATS + ", light " + LIGHT_STATS + ", block properties " + PROPERTY_STATS;
+    }
+}
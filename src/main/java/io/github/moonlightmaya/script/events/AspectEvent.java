@@ -1,48 +1,75 @@
 package io.github.moonlightmaya.script.events;
 
+import io.github.moonlightmaya.script.ScriptProfiler;
+import io.github.moonlightmaya.script.ScriptUsage;
 import petpet.external.PetPetWhitelist;
 import petpet.lang.run.PetPetCallable;
 import petpet.lang.run.PetPetException;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 @PetPetWhitelist
 public class AspectEvent {
 
+    private static final PetPetCallable[] EMPTY = new PetPetCallable[0];
+
     /**
-     * Maintains the list of all registered functions to the event
+     * Maintains the list of all registered functions to the event.
+     * This is copy-on-write: the array is only rebuilt when functions
+     * are added or removed, so executing the event never allocates.
      */
-    private final LinkedHashSet<PetPetCallable> registered = new LinkedHashSet<>();
+    private PetPetCallable[] registered = EMPTY;
 
     private final ConcurrentLinkedQueue<PetPetCallable> toRegister = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<PetPetCallable> toRemove = new ConcurrentLinkedQueue<>();
     private boolean shouldClear = false;
-    private final String name;
+    //Set whenever one of the above changes, so we know the queues need flushing
+    private volatile boolean dirty = false;
+    public final String name;
     private final int expectedArgCount;
 
+    /**
+     * Time spent executing this event, for the owning script handler's limits
+     */
+    public final ScriptUsage usage = new ScriptUsage();
+
     public AspectEvent(String name, int expectedArgCount) {
         this.name = name;
         this.expectedArgCount = expectedArgCount;
     }
 
     private void flushQueues() {
+        dirty = false;
         if (shouldClear) {
-            registered.clear();
+            registered = EMPTY;
             toRegister.clear();
             toRemove.clear();
             shouldClear = false;
             return;
         }
+        LinkedHashSet<PetPetCallable> set = new LinkedHashSet<>(registered.length + toRegister.size());
+        Collections.addAll(set, registered);
         while (!toRegister.isEmpty())
-            registered.add(toRegister.poll());
+            set.add(toRegister.poll());
         while (!toRemove.isEmpty())
-            registered.remove(toRemove.poll());
+            set.remove(toRemove.poll());
+        registered = set.toArray(EMPTY);
+    }
+
+    /**
+     * Whether executing this event could call any function.
+     * Callers use this to skip the event entirely when nothing is listening.
+     */
+    public boolean hasListeners() {
+        return registered.length > 0 || dirty;
     }
 
     @PetPetWhitelist
     public void clear() {
         shouldClear = true;
+        dirty = true;
     }
 
     /**
@@ -54,6 +81,7 @@ public class AspectEvent {
         if (expectedArgCount != function.paramCount())
             throw new PetPetException("Event " + name + " expects a " + expectedArgCount + "-arg function, but received a " + function.paramCount() + "-arg function");
         toRegister.add(function);
+        dirty = true;
     }
 
     /**
@@ -64,16 +92,48 @@ public class AspectEvent {
     @PetPetWhitelist
     public void remove(PetPetCallable function) {
         toRemove.add(function);
+        dirty = true;
     }
 
     /**
      * Executes the event.
      * The set of registered functions cannot be modified while
      * inside the iteration.
+     * There are fixed-arity versions for the built-in events,
+     * which avoid creating an args array on each call.
+     */
+    public void execute() {
+        if (dirty) flushQueues();
+        if (ScriptProfiler.isEnabled()) {
+            for (PetPetCallable func : registered)
+                callProfiled(func);
+            return;
+        }
+        for (PetPetCallable func : registered)
+            func.call();
+    }
+
+    public void execute(Object arg) {
+        if (dirty) flushQueues();
+        if (ScriptProfiler.isEnabled()) {
+            for (PetPetCallable func : registered)
+                callProfiled(func, arg);
+            return;
+        }
+        for (PetPetCallable func : registered)
+            func.call(arg);
+    }
+
+    /**
      * The given args will be passed to each function in the call.
      */
     public void execute(Object... args) {
-        flushQueues();
+        if (dirty) flushQueues();
+        if (ScriptProfiler.isEnabled()) {
+            for (PetPetCallable func : registered)
+                callProfiled(func, args);
+            return;
+        }
         for (PetPetCallable func : registered)
             func.call(args);
     }
@@ -87,14 +147,28 @@ public class AspectEvent {
      * through all registered functions is returned.
      */
     public Object executePiped(Object arg) {
-        flushQueues();
+        if (dirty) flushQueues();
+        boolean profiling = ScriptProfiler.isEnabled();
         for (PetPetCallable func : registered)
-            arg = func.call(arg);
+            arg = profiling ? callProfiled(func, arg) : func.call(arg);
         return arg;
     }
 
+    /**
+     * Calls the function with timing, only used while the profiler is running,
+     * so the normal paths above stay as they are.
+     */
+    private Object callProfiled(PetPetCallable func, Object... args) {
+        long start = ScriptProfiler.begin(name, func);
+        try {
+            return func.call(args);
+        } finally {
+            ScriptProfiler.end(start);
+        }
+    }
+
     @Override
     public String toString() {
-        return "Event(" + registered.size() + " functions)";
+        return "Event(" + registered.length + " functions)";
     }
 }
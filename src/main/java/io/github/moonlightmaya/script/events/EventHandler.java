@@ -4,10 +4,7 @@ import oshi.util.tuples.Pair;
 import petpet.external.PetPetInstance;
 import petpet.types.PetPetTable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Deals with the global "events" table and the events that it contains
@@ -16,6 +13,12 @@ public class EventHandler {
 
     private final Map<String, AspectEvent> events = new HashMap<>();
 
+    /**
+     * Handles to the built-in events, resolved once when the handler is
+     * created, so the hot paths (tick and render) don't need a map lookup.
+     */
+    public final AspectEvent worldTick, tick, worldRender, render, userInit, userLoad, userUnload, worldChange;
+
     /**
      * Creates the event handler and installs it into the given instance
      */
@@ -27,24 +30,28 @@ public class EventHandler {
             table.put(type.getA(), event);
         }
         instance.setGlobal("events", table);
+
+        worldTick = get(WORLD_TICK);
+        tick = get(TICK);
+        worldRender = get(WORLD_RENDER);
+        render = get(RENDER);
+        userInit = get(USER_INIT);
+        userLoad = get(USER_LOAD);
+        userUnload = get(USER_UNLOAD);
+        worldChange = get(WORLD_CHANGE);
     }
 
     /**
-     * Calls the given event with the given args.
-     * The result is the result of the final function
-     * registered, or null if none are registered.
+     * Gets the event with the given name, or null if there is none.
+     * Resolve an event once and keep the handle, rather than calling
+     * this every time the event is run.
      */
-    public void callEvent(String name, Object... args) {
-        events.get(name).execute(args);
+    public AspectEvent get(String name) {
+        return events.get(name);
     }
 
-    /**
-     * Calls the event in the "piped" style, with the
-     * given arg. The result of a call is passed to
-     * the next call.
-     */
-    public Object callEventPiped(String name, Object arg) {
-        return events.get(name).executePiped(arg);
+    public Collection<AspectEvent> getAll() {
+        return events.values();
     }
 
     /**
@@ -54,6 +54,18 @@ public class AspectTexture extends ResourceTexture {
         return location;
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
     //Disable load. We don't get our textures from the resource manager, we get them from
     //our own Aspect loading.
     @Override
@@ -1,6 +1,7 @@
 package io.github.moonlightmaya.util;
 
 import io.github.moonlightmaya.AspectMod;
+import io.github.moonlightmaya.manage.AspectManager;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Style;
 import net.minecraft.text.Text;
@@ -14,7 +15,7 @@ public class DisplayUtils {
     public static void displayError(String message, boolean reportToChat) {
         AspectMod.LOGGER.error(message);
         if (reportToChat)
-            MinecraftClient.getInstance().inGameHud.getChatHud().addMessage(
+            addChatMessage(
                     Text.literal(message)
                             .formatted(Formatting.RED)
             );
@@ -31,7 +32,7 @@ public class DisplayUtils {
                 else
                     errorMessage = "Unknown cause, check console";
             }
-            MinecraftClient.getInstance().inGameHud.getChatHud().addMessage(
+            addChatMessage(
                     Text.literal(message + ": " + errorMessage)
                             .formatted(Formatting.RED)
             );
@@ -49,7 +50,15 @@ public class DisplayUtils {
         Text text = Text.empty()
                 .append(Text.literal("[PetPet] ").formatted(Formatting.AQUA))
                 .append(Text.literal(message));
-        MinecraftClient.getInstance().inGameHud.getChatHud().addMessage(text);
+        addChatMessage(text);
+    }
+
+    /**
+     * The chat hud isn't thread safe, and scripts may print from
+     * worker threads, so messages always get routed to the client thread.
+     */
+    private static void addChatMessage(Text text) {
+        AspectManager.runOnMainThread(() -> MinecraftClient.getInstance().inGameHud.getChatHud().addMessage(text));
     }
 
 
@@ -27,6 +27,11 @@ public class MathUtils {
         return new Vector3d(mcVec.x, mcVec.y, mcVec.z);
     }
 
+    //Same, but writes into an existing vector instead of making a new one
+    public static Vector3d fromVec3d(Vec3d mcVec, Vector3d dest) {
+        return dest.set(mcVec.x, mcVec.y, mcVec.z);
+    }
+
 
 
     /**